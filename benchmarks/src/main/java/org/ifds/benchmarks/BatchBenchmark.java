@@ -0,0 +1,68 @@
+package org.ifds.benchmarks;
+
+import org.ifds.IFDSSetUp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One executeBatch over the entry points of every synthetic shape per invocation, at increasing
+ * parallelism, to check that throughput scales with the cores. Each invocation sets up a fresh
+ * view, as executeBatch does, so class resolution and body conversion are measured too.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    @Param({"IFDS_ENVIRONMENT", "IDE"})
+    public IFDSSetUp.Engine engine;
+
+    @Param({"32"})
+    public int size;
+
+    private String inputPath;
+    private List<String> targetClassNames;
+
+    @Setup
+    public void setUp() {
+        inputPath = SyntheticInput.generateAll(size).toString();
+        targetClassNames = new ArrayList<>();
+        for (SyntheticInput.Shape shape : SyntheticInput.Shape.values()) {
+            targetClassNames.add(SyntheticInput.targetClassOf(shape));
+        }
+    }
+
+    /* runs finished, returned so the batch can not be eliminated */
+    @Benchmark
+    public int executeBatch() {
+        IFDSSetUp setUp = new IFDSSetUp();
+        setUp.setEngine(engine);
+        int[] finished = new int[1];
+        setUp.executeBatch(targetClassNames, inputPath, parallelism, run -> {
+            if (run.isFailed()) {
+                throw new IllegalStateException(run.getFailure());
+            }
+            finished[0]++;
+        });
+        return finished[0];
+    }
+}
@@ -0,0 +1,138 @@
+package org.ifds.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs the benchmarks with the GC profiler and compares time and allocation per operation against
+ * the checked-in baseline. A benchmark more than the threshold slower, or allocating more than the
+ * threshold more, than its baseline is a regression and makes the runner exit with 1. So is a
+ * benchmark without a baseline, or a missing baseline file, unless missing baselines are allowed:
+ * a gate that passes when it has nothing to compare against doesn't gate anything. The baseline
+ * only means something on the machine it was recorded on, record it on the reference machine.
+ *
+ * Usage: BenchmarkRunner [include regex]
+ *   -Dbaseline.file=baseline.tsv    the baseline to compare against
+ *   -Dbaseline.update=true          replace the baseline with this run instead
+ *   -Dbaseline.threshold=0.10       tolerated relative increase
+ *   -Dbaseline.allowMissing=true    only report benchmarks without a baseline
+ */
+public class BenchmarkRunner {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    /* score in the benchmark's unit, bytes allocated per operation (NaN if not measured) */
+    private record Measurement(double score, String unit, double allocated) {
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        String include = args.length > 0 ? args[0] : "org\\.ifds\\.benchmarks\\..*";
+        Path baselineFile = Path.of(System.getProperty("baseline.file", "baseline.tsv"));
+        boolean update = Boolean.getBoolean("baseline.update");
+        double threshold = Double.parseDouble(System.getProperty("baseline.threshold", "0.10"));
+        boolean allowMissing = Boolean.getBoolean("baseline.allowMissing");
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .build();
+        Map<String, Measurement> current = new TreeMap<>();
+        for (RunResult result : new Runner(options).run()) {
+            Result<?> allocated = result.getSecondaryResults().get(ALLOCATION);
+            current.put(key(result), new Measurement(result.getPrimaryResult().getScore(),
+                    result.getPrimaryResult().getScoreUnit(), allocated == null ? Double.NaN : allocated.getScore()));
+        }
+
+        if (update) {
+            write(baselineFile, current);
+            System.out.println("Baseline written to " + baselineFile);
+            return;
+        }
+        Map<String, Measurement> baseline = read(baselineFile);
+        List<String> regressions = new ArrayList<>();
+        System.out.printf("%-70s %14s %14s %14s %14s%n", "benchmark", "score", "baseline", "B/op", "baseline B/op");
+        current.forEach((key, measured) -> {
+            Measurement base = baseline.get(key);
+            System.out.printf("%-70s %14.3f %14s %14.0f %14s%n", key, measured.score(),
+                    base == null ? "-" : String.format("%.3f", base.score()), measured.allocated(),
+                    base == null ? "-" : String.format("%.0f", base.allocated()));
+            if (base == null) {
+                if (!allowMissing) {
+                    regressions.add(key + ": no baseline");
+                }
+                return;
+            }
+            if (!base.unit().equals(measured.unit())) {
+                regressions.add(key + ": unit changed from " + base.unit() + " to " + measured.unit());
+            } else if (measured.score() > base.score() * (1 + threshold)) {
+                regressions.add(key + ": " + percent(measured.score(), base.score()) + " slower");
+            }
+            if (measured.allocated() > base.allocated() * (1 + threshold)) {
+                regressions.add(key + ": " + percent(measured.allocated(), base.allocated()) + " more allocation");
+            }
+        });
+        if (!regressions.isEmpty()) {
+            System.out.println("Regressions against " + baselineFile + ":");
+            regressions.forEach(regression -> System.out.println("  " + regression));
+            System.exit(1);
+        }
+    }
+
+    /* benchmark name and its parameters, e.g. SolverBenchmark.runAnalysis engine=IDE shape=FAN_OUT size=32 */
+    private static String key(RunResult result) {
+        StringBuilder key = new StringBuilder(result.getParams().getBenchmark()
+                .replace("org.ifds.benchmarks.", ""));
+        for (String param : result.getParams().getParamsKeys()) {
+            key.append(' ').append(param).append('=').append(result.getParams().getParam(param));
+        }
+        return key.toString();
+    }
+
+    private static String percent(double measured, double base) {
+        return String.format("%.1f%%", (measured / base - 1) * 100);
+    }
+
+    /* One benchmark per line: key, score, unit, bytes per operation, separated by tabs; # starts a comment. */
+    private static Map<String, Measurement> read(Path baselineFile) throws IOException {
+        Map<String, Measurement> baseline = new TreeMap<>();
+        if (!Files.exists(baselineFile)) {
+            System.out.println("No baseline at " + baselineFile);
+            return baseline;
+        }
+        for (String line : Files.readAllLines(baselineFile)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            if (fields.length != 4) {
+                throw new IOException("Malformed baseline line: " + line);
+            }
+            baseline.put(fields[0], new Measurement(Double.parseDouble(fields[1]), fields[2],
+                    Double.parseDouble(fields[3])));
+        }
+        return baseline;
+    }
+
+    private static void write(Path baselineFile, Map<String, Measurement> measurements) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# benchmark\tscore\tunit\tbytes per operation, written by BenchmarkRunner -Dbaseline.update=true");
+        lines.add("# " + System.getProperty("java.vm.name") + " " + System.getProperty("java.version") + ", "
+                + Runtime.getRuntime().availableProcessors() + " processors");
+        measurements.forEach((key, measured) ->
+                lines.add(key + "\t" + measured.score() + "\t" + measured.unit() + "\t" + measured.allocated()));
+        Files.write(baselineFile, lines);
+    }
+}
@@ -0,0 +1,82 @@
+package org.ifds.benchmarks;
+
+import org.ifds.IFDSSetUp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Setting up a fresh view and analyzing it with the call-graph cache. A cold start finds the cache
+ * empty, builds the call graph and writes it; a warm start loads the one written in the trial
+ * setup. That both give the same result is checked by CallGraphCacheTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CallGraphCacheBenchmark {
+
+    @Param({"cold", "warm"})
+    public String start;
+
+    @Param({"CALL_CHAIN", "FAN_OUT"})
+    public SyntheticInput.Shape shape;
+
+    @Param({"64"})
+    public int size;
+
+    private String inputPath;
+    private Path cacheDirectory;
+
+    @Setup
+    public void setUp() throws IOException {
+        inputPath = SyntheticInput.generate(shape, size).toString();
+        cacheDirectory = Files.createTempDirectory("ifds-cg");
+        if (start.equals("warm")) {
+            analyze();
+        }
+    }
+
+    /* path edges, returned so the run can not be eliminated */
+    @Benchmark
+    public long analyze() {
+        if (start.equals("cold")) {
+            clear(cacheDirectory);
+        }
+        IFDSSetUp setUp = new IFDSSetUp();
+        setUp.setCallGraphCacheDirectory(cacheDirectory);
+        setUp.setupSoot(SyntheticInput.TARGET_CLASS, inputPath);
+        setUp.runAnalysis();
+        if (setUp.getLastRun().isFailed()) {
+            throw new IllegalStateException(setUp.getLastRun().getFailure());
+        }
+        return setUp.getSolver().propagationCount;
+    }
+
+    private static void clear(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.ifds.benchmarks;
+
+import org.ifds.IFDSSetUp;
+import org.ifds.MethodSummaryStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-analysis with the IDE engine and a method summary store, against a full solve without one.
+ * "unchanged" re-runs over the summaries of the previous run, "changed" first drops the summaries
+ * of a few methods as if their bodies had changed. That incremental runs give the result of a full
+ * solve is checked by MethodSummaryStoreTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IncrementalBenchmark {
+
+    @Param({"full", "unchanged", "changed"})
+    public String change;
+
+    @Param({"CALL_CHAIN", "FAN_OUT"})
+    public SyntheticInput.Shape shape;
+
+    @Param({"64"})
+    public int size;
+
+    @Param({"5"})
+    public int changedMethods;
+
+    private IFDSSetUp setUp;
+    private MethodSummaryStore store;
+    private final Random random = new Random(42);
+
+    @Setup
+    public void setUp() throws IOException {
+        setUp = new IFDSSetUp();
+        setUp.setEngine(IFDSSetUp.Engine.IDE);
+        setUp.setupSoot(SyntheticInput.TARGET_CLASS, SyntheticInput.generate(shape, size).toString());
+        if (!change.equals("full")) {
+            Path summaryFile = Files.createTempFile("ifds-summaries", ".bin");
+            Files.delete(summaryFile);
+            setUp.setMethodSummaryFile(summaryFile);
+            store = setUp.getMethodSummaryStore();
+            setUp.runAnalysis();
+        }
+    }
+
+    /* path edges, returned so the solve can not be eliminated */
+    @Benchmark
+    public long runAnalysis() {
+        if (change.equals("changed")) {
+            List<String> signatures = store.getSignatures();
+            Collections.shuffle(signatures, random);
+            signatures.stream().limit(changedMethods).forEach(store::invalidate);
+        }
+        setUp.runAnalysis();
+        if (setUp.getLastRun().isFailed()) {
+            throw new IllegalStateException(setUp.getLastRun().getFailure());
+        }
+        return setUp.getSolver().propagationCount;
+    }
+}
@@ -0,0 +1,62 @@
+package org.ifds.benchmarks;
+
+import org.ifds.IFDSSetUp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One entry point solved on 1 to 8 solver threads, to see how far a single solve scales. Only the
+ * shapes with enough independent work to spread are measured. That the threads agree with the
+ * sequential solve is checked by ParallelSolveTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelSolveBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"CALL_CHAIN", "FAN_OUT"})
+    public SyntheticInput.Shape shape;
+
+    @Param({"IFDS_ENVIRONMENT", "IFDS_PER_LOCAL", "IDE"})
+    public IFDSSetUp.Engine engine;
+
+    @Param({"64"})
+    public int size;
+
+    private IFDSSetUp setUp;
+
+    @Setup
+    public void setUp() {
+        setUp = new IFDSSetUp();
+        setUp.setEngine(engine);
+        setUp.setNumThreads(threads);
+        setUp.setupSoot(SyntheticInput.TARGET_CLASS, SyntheticInput.generate(shape, size).toString());
+    }
+
+    /* path edges, returned so the solve can not be eliminated */
+    @Benchmark
+    public long runAnalysis() {
+        setUp.runAnalysis();
+        if (setUp.getLastRun().isFailed()) {
+            throw new IllegalStateException(setUp.getLastRun().getFailure());
+        }
+        return setUp.getSolver().propagationCount;
+    }
+}
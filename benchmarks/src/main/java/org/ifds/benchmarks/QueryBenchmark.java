@@ -0,0 +1,110 @@
+package org.ifds.benchmarks;
+
+import org.ifds.AnalysisScope;
+import org.ifds.IFDSSetUp;
+import org.ifds.StringQueries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import sootup.core.jimple.basic.Local;
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.model.SootMethod;
+import sootup.core.signatures.MethodSignature;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asks for the first string argument of every reflective or native-loading call reachable from the
+ * entry method, e.g. Class.forName and System.loadLibrary, on demand through a fresh StringQueries,
+ * against a full forward solve with the IDE engine that answers all of them. That both give the
+ * same answers is checked by QueryTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+    /* declaring class and name of the calls whose first argument we ask for */
+    private static final List<List<String>> SINKS = List.of(
+            List.of("java.lang.Class", "forName"),
+            List.of("java.lang.Class", "getMethod"),
+            List.of("java.lang.Class", "getDeclaredMethod"),
+            List.of("java.lang.Class", "getField"),
+            List.of("java.lang.Class", "getDeclaredField"),
+            List.of("java.lang.ClassLoader", "loadClass"),
+            List.of("java.lang.System", "loadLibrary"),
+            List.of("java.lang.System", "load"),
+            List.of("java.lang.Runtime", "loadLibrary"),
+            List.of("java.lang.Runtime", "load"));
+
+    @Param({"query", "full"})
+    public String mode;
+
+    @Param({"8", "64"})
+    public int size;
+
+    private IFDSSetUp setUp;
+    private SootMethod entryMethod;
+    private List<Stmt> sinks;
+
+    @Setup
+    public void setUp() {
+        setUp = new IFDSSetUp();
+        setUp.setEngine(IFDSSetUp.Engine.IDE);
+        setUp.setupSoot(SyntheticInput.TARGET_CLASS,
+                SyntheticInput.generate(SyntheticInput.Shape.REFLECTION, size).toString());
+        setUp.runAnalysis();
+        entryMethod = setUp.getLastRun().getEntryMethod();
+        sinks = sinks(setUp.getQueries(), setUp.getScope());
+    }
+
+    @Benchmark
+    public void answerAll(Blackhole blackhole) {
+        if (mode.equals("query")) {
+            StringQueries queries = setUp.newQueries(entryMethod);
+            for (Stmt sink : sinks) {
+                blackhole.consume(queries.valueOf(sink, (Local) sink.getInvokeExpr().getArg(0)));
+            }
+        } else {
+            setUp.runAnalysis();
+            for (Stmt sink : sinks) {
+                blackhole.consume(setUp.getLastRun().getResultsAt(sink));
+            }
+        }
+    }
+
+    /* calls in application code, the library is not descended into */
+    private static List<Stmt> sinks(StringQueries queries, AnalysisScope scope) {
+        List<Stmt> sinks = new ArrayList<>();
+        for (SootMethod method : queries.getReachableMethods()) {
+            if (scope.isLibrary(method)) {
+                continue;
+            }
+            for (Stmt stmt : method.getBody().getStmts()) {
+                if (!stmt.containsInvokeExpr() || stmt.getInvokeExpr().getArgs().isEmpty()) {
+                    continue;
+                }
+                MethodSignature callee = stmt.getInvokeExpr().getMethodSignature();
+                if (stmt.getInvokeExpr().getArg(0) instanceof Local && SINKS.contains(List.of(
+                        callee.getDeclClassType().getFullyQualifiedName(), callee.getName()))) {
+                    sinks.add(stmt);
+                }
+            }
+        }
+        return sinks;
+    }
+}
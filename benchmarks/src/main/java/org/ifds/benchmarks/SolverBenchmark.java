@@ -0,0 +1,67 @@
+package org.ifds.benchmarks;
+
+import org.ifds.AnalysisScope;
+import org.ifds.IFDSSetUp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole runAnalysis per invocation: ICFG construction and the solve, on every synthetic shape and
+ * with every engine, once with the JDK summarized as library code and once descending into every
+ * body. The view is set up once per trial, so its class loading is not measured, but every
+ * invocation builds a fresh solver and its caches.
+ *
+ * Run with -prof gc for the allocation rate, and once more with -jvmArgsAppend -Difds.intern=false
+ * to see what interning saves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+
+    @Param({"CALL_CHAIN", "FAN_OUT", "APPEND_LOOP", "CLINIT_TABLE"})
+    public SyntheticInput.Shape shape;
+
+    @Param({"IFDS_ENVIRONMENT", "IFDS_PER_LOCAL", "IDE"})
+    public IFDSSetUp.Engine engine;
+
+    @Param({"jdk", "everything"})
+    public String scope;
+
+    @Param({"32"})
+    public int size;
+
+    private IFDSSetUp setUp;
+
+    @Setup
+    public void setUp() {
+        setUp = new IFDSSetUp();
+        setUp.setEngine(engine);
+        setUp.setScope(scope.equals("jdk") ? AnalysisScope.jdk() : AnalysisScope.everything());
+        setUp.setupSoot(SyntheticInput.TARGET_CLASS, SyntheticInput.generate(shape, size).toString());
+    }
+
+    /* path edges, returned so the solve can not be eliminated */
+    @Benchmark
+    public long runAnalysis() {
+        setUp.runAnalysis();
+        if (setUp.getLastRun().isFailed()) {
+            throw new IllegalStateException(setUp.getLastRun().getFailure());
+        }
+        return setUp.getSolver().propagationCount;
+    }
+}
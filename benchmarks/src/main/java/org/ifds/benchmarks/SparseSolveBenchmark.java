@@ -0,0 +1,62 @@
+package org.ifds.benchmarks;
+
+import org.ifds.IFDSSetUp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A solve over the full interprocedural CFG against one over the sparse CFG, which skips the
+ * statements that cannot touch a string. Compare the path edges with -prof gc as well as the time.
+ * That both give the same values is checked by SparseSolveTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SparseSolveBenchmark {
+
+    @Param({"false", "true"})
+    public boolean sparse;
+
+    @Param({"CALL_CHAIN", "FAN_OUT", "APPEND_LOOP"})
+    public SyntheticInput.Shape shape;
+
+    @Param({"IFDS_ENVIRONMENT", "IFDS_PER_LOCAL", "IDE"})
+    public IFDSSetUp.Engine engine;
+
+    @Param({"32"})
+    public int size;
+
+    private IFDSSetUp setUp;
+
+    @Setup
+    public void setUp() {
+        setUp = new IFDSSetUp();
+        setUp.setEngine(engine);
+        setUp.setSparse(sparse);
+        setUp.setupSoot(SyntheticInput.TARGET_CLASS, SyntheticInput.generate(shape, size).toString());
+    }
+
+    /* path edges, returned so the solve can not be eliminated */
+    @Benchmark
+    public long runAnalysis() {
+        setUp.runAnalysis();
+        if (setUp.getLastRun().isFailed()) {
+            throw new IllegalStateException(setUp.getLastRun().getFailure());
+        }
+        return setUp.getSolver().propagationCount;
+    }
+}
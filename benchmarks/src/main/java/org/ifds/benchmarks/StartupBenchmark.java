@@ -0,0 +1,59 @@
+package org.ifds.benchmarks;
+
+import org.ifds.IFDSSetUp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Setting up a fresh view and analyzing it, with bodies converted lazily while the call graph is
+ * built (loadParallelism 0) against converting them up front on a pool of threads. That both give
+ * the same result is checked by ParallelBodyLoaderTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StartupBenchmark {
+
+    @Param({"0", "1", "4"})
+    public int loadParallelism;
+
+    @Param({"CALL_CHAIN", "FAN_OUT"})
+    public SyntheticInput.Shape shape;
+
+    @Param({"64"})
+    public int size;
+
+    private String inputPath;
+
+    @Setup
+    public void setUp() {
+        inputPath = SyntheticInput.generate(shape, size).toString();
+    }
+
+    /* path edges, returned so the run can not be eliminated */
+    @Benchmark
+    public long startAndAnalyze() {
+        IFDSSetUp setUp = new IFDSSetUp();
+        setUp.setLoadParallelism(loadParallelism);
+        setUp.setupSoot(SyntheticInput.TARGET_CLASS, inputPath);
+        setUp.runAnalysis();
+        if (setUp.getLastRun().isFailed()) {
+            throw new IllegalStateException(setUp.getLastRun().getFailure());
+        }
+        return setUp.getSolver().propagationCount;
+    }
+}
@@ -0,0 +1,178 @@
+package org.ifds.benchmarks;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates and compiles synthetic programs that stress one part of the analysis each. The program
+ * is compiled with javac, so string concatenation is the same invokedynamic the analysis meets in
+ * real inputs. The entry point is always {@link #TARGET_CLASS}.
+ */
+public final class SyntheticInput {
+
+    public static final String TARGET_CLASS = "synthetic.Main";
+
+    public enum Shape {
+        /* main -> level0 -> ... -> level(size-1), each level appending to the string it is passed */
+        CALL_CHAIN,
+        /* main calls size static methods, and one interface call CHA resolves to size implementations */
+        FAN_OUT,
+        /* size StringBuilder loops appending literals and ints, which the widening has to stop */
+        APPEND_LOOP,
+        /* a <clinit> initializing size static fields, each concatenated from the previous one */
+        CLINIT_TABLE,
+        /* size Class.forName calls, each on a class name a helper concatenates; analyzed, never run */
+        REFLECTION
+    }
+
+    private SyntheticInput() {
+    }
+
+    /* Writes and compiles the program into a fresh directory and returns its class path. */
+    public static Path generate(Shape shape, int size) {
+        return compile("ifds-synthetic-" + shape.name().toLowerCase(), Map.of("synthetic", source(shape, size)));
+    }
+
+    /* Every shape in a package of its own, see targetClassOf, compiled into one class path for batch runs. */
+    public static Path generateAll(int size) {
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (Shape shape : Shape.values()) {
+            String pkg = packageOf(shape);
+            sources.put(pkg, source(shape, size).replaceFirst("package synthetic;", "package " + pkg + ";"));
+        }
+        return compile("ifds-synthetic-all", sources);
+    }
+
+    /* The entry point of shape in the class path of generateAll. */
+    public static String targetClassOf(Shape shape) {
+        return packageOf(shape) + ".Main";
+    }
+
+    private static String packageOf(Shape shape) {
+        return "synthetic." + shape.name().toLowerCase();
+    }
+
+    /* Compiles the Main.java of each package, sources keyed by package name. */
+    private static Path compile(String prefix, Map<String, String> sources) {
+        try {
+            Path root = Files.createTempDirectory(prefix);
+            Path classes = Files.createDirectories(root.resolve("classes"));
+            List<String> arguments = new ArrayList<>(List.of("--release", "11", "-d", classes.toString()));
+            for (Map.Entry<String, String> source : sources.entrySet()) {
+                Path dir = Files.createDirectories(root.resolve("src").resolve(source.getKey().replace('.', '/')));
+                Path file = dir.resolve("Main.java");
+                Files.writeString(file, source.getValue());
+                arguments.add(file.toString());
+            }
+
+            JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+            if (javac == null) {
+                throw new IllegalStateException("Generating inputs needs a JDK, not a JRE");
+            }
+            if (javac.run(null, null, System.err, arguments.toArray(new String[0])) != 0) {
+                throw new IllegalStateException("Could not compile the synthetic input " + sources.keySet());
+            }
+            return classes;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String source(Shape shape, int size) {
+        StringBuilder java = new StringBuilder("package synthetic;\n\n");
+        switch (shape) {
+            case CALL_CHAIN -> {
+                java.append("public class Main {\n");
+                java.append("    public static void main(String[] args) {\n");
+                java.append("        String s = level0(\"start\");\n");
+                java.append("    }\n");
+                for (int i = 0; i < size; i++) {
+                    java.append("    static String level").append(i).append("(String s) {\n");
+                    java.append(i + 1 < size
+                            ? "        return level" + (i + 1) + "(s + \"." + i + "\");\n"
+                            : "        return s + \".end\";\n");
+                    java.append("    }\n");
+                }
+                java.append("}\n");
+            }
+            case FAN_OUT -> {
+                java.append("interface Named {\n    String name();\n}\n\n");
+                for (int i = 0; i < size; i++) {
+                    java.append("class Named").append(i).append(" implements Named {\n");
+                    java.append("    public String name() {\n        return \"named").append(i)
+                            .append("\";\n    }\n}\n\n");
+                }
+                java.append("public class Main {\n");
+                java.append("    public static void main(String[] args) {\n");
+                for (int i = 0; i < size; i++) {
+                    java.append("        String s").append(i).append(" = callee").append(i).append("(\"x\");\n");
+                }
+                java.append("        Named named = args.length > 0 ? new Named0() : new Named")
+                        .append(Math.max(0, size - 1)).append("();\n");
+                java.append("        String name = named.name();\n");
+                java.append("    }\n");
+                for (int i = 0; i < size; i++) {
+                    java.append("    static String callee").append(i).append("(String p) {\n");
+                    java.append("        return p + \"_").append(i).append("\";\n");
+                    java.append("    }\n");
+                }
+                java.append("}\n");
+            }
+            case APPEND_LOOP -> {
+                java.append("public class Main {\n");
+                java.append("    public static void main(String[] args) {\n");
+                for (int i = 0; i < size; i++) {
+                    java.append("        StringBuilder sb").append(i).append(" = new StringBuilder(\"l")
+                            .append(i).append("\");\n");
+                    java.append("        for (int i = 0; i < args.length; i++) {\n");
+                    java.append("            sb").append(i).append(".append(\"x\").append(i);\n");
+                    java.append("        }\n");
+                    java.append("        String s").append(i).append(" = sb").append(i).append(".toString();\n");
+                }
+                java.append("        String t = \"\";\n");
+                java.append("        for (int i = 0; i < args.length; i++) {\n");
+                java.append("            t = t + \"y\";\n");
+                java.append("        }\n");
+                java.append("    }\n");
+                java.append("}\n");
+            }
+            case CLINIT_TABLE -> {
+                java.append("class Table {\n");
+                java.append("    static String F0 = \"f\";\n");
+                for (int i = 1; i < size; i++) {
+                    java.append("    static String F").append(i).append(" = F").append(i - 1).append(" + \"")
+                            .append(i % 10).append("\";\n");
+                }
+                java.append("}\n\n");
+                java.append("public class Main {\n");
+                java.append("    public static void main(String[] args) {\n");
+                java.append("        String s = Table.F").append(Math.max(0, size - 1)).append(";\n");
+                java.append("    }\n");
+                java.append("}\n");
+            }
+            case REFLECTION -> {
+                java.append("public class Main {\n");
+                java.append("    public static void main(String[] args) throws Exception {\n");
+                for (int i = 0; i < size; i++) {
+                    java.append("        Class.forName(name").append(i).append("(\"synthetic.Plugin\"));\n");
+                }
+                java.append("    }\n");
+                for (int i = 0; i < size; i++) {
+                    java.append("    static String name").append(i).append("(String base) {\n");
+                    java.append("        return base + \"").append(i).append("\";\n");
+                    java.append("    }\n");
+                }
+                java.append("}\n");
+            }
+        }
+        return java.toString();
+    }
+}
@@ -0,0 +1,89 @@
+package org.ifds.benchmarks;
+
+import org.ifds.IFDSSetUp;
+import org.ifds.LocalEnvironment;
+import org.ifds.LocalIndex;
+import org.ifds.LocalStringFact;
+import org.ifds.StringAnalysisContext;
+import org.ifds.StringApiModels;
+import org.ifds.StringFoldingVisitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.model.SootMethod;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The normal flow function in isolation: one pass of StringFoldingVisitor over the entry method of a
+ * synthetic input, threading the environment (or the per-local facts) from statement to statement
+ * the way a straight-line path through the method would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VisitorBenchmark {
+
+    @Param({"APPEND_LOOP", "FAN_OUT"})
+    public SyntheticInput.Shape shape;
+
+    @Param({"16"})
+    public int size;
+
+    private List<Stmt> stmts;
+    private LocalEnvironment unknown;
+    private StringAnalysisContext context;
+
+    @Setup
+    public void setUp() {
+        IFDSSetUp setUp = new IFDSSetUp();
+        setUp.setupSoot(SyntheticInput.TARGET_CLASS, SyntheticInput.generate(shape, size).toString());
+        /* a run is the only public way to the entry method, it also loads every body we visit */
+        setUp.runAnalysis();
+        SootMethod entryMethod = setUp.getLastRun().getEntryMethod();
+        stmts = new ArrayList<>(entryMethod.getBody().getStmts());
+        unknown = new LocalIndex(entryMethod).unknownEnvironment();
+        context = new StringAnalysisContext(null, null, StringApiModels.defaults());
+    }
+
+    @Benchmark
+    public LocalEnvironment environment() {
+        LocalEnvironment environment = unknown;
+        for (Stmt stmt : stmts) {
+            StringFoldingVisitor visitor = new StringFoldingVisitor(environment, context);
+            stmt.accept(visitor);
+            environment = visitor.getSetOut();
+        }
+        return environment;
+    }
+
+    @Benchmark
+    public void perLocal(Blackhole blackhole) {
+        List<LocalStringFact> facts = List.of(LocalStringFact.zero());
+        for (Stmt stmt : stmts) {
+            List<LocalStringFact> out = new ArrayList<>();
+            for (LocalStringFact fact : facts) {
+                StringFoldingVisitor visitor = new StringFoldingVisitor(fact, context);
+                stmt.accept(visitor);
+                out.addAll(visitor.getFactsOut());
+            }
+            facts = out;
+        }
+        blackhole.consume(facts);
+    }
+}
@@ -0,0 +1,393 @@
+package org.ifds;
+
+import sootup.core.jimple.basic.Local;
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.model.SootMethod;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Keeps a view of the input path and the call graphs built on it warm between requests, and answers
+ * them over a local socket, so a client doesn't pay for SootUp's startup on every run.
+ *
+ * The protocol is line based. Each request is one line, each response starts with "OK" or "ERR":
+ *
+ *   analyze &lt;class&gt; [engine]                       values at the end of main, "OK n" and n lines
+ *   value &lt;class&gt; &lt;method&gt; &lt;index&gt; &lt;local&gt;          value of the local before the index-th
+ *                                                  statement of the method, solved on demand from
+ *                                                  the main method of the class, "OK value"
+ *   stats                                          "OK" and the cache statistics on one line
+ *   reload                                         drops the view and every cached result
+ *
+ * The method is either its name or its full signature in angle brackets. Responses are cached in
+ * an LRU of bounded size. When a collection leaves a heap pool fuller than the configured fraction
+ * of its maximum, the older half of the cached responses, or of the queries once no responses are
+ * left, is dropped. Only the usage after a collection is looked at, before it the heap also holds
+ * garbage. The input path is polled for changes, which reload the view.
+ *
+ * Usage: AnalysisDaemon [inputPath] [address] [cacheEntries] [maxHeapFraction] [pollSeconds]
+ * where address is a loopback port, or unix:&lt;path&gt; for a Unix domain socket. Call graphs are
+ * kept in the directory given by -Difds.callGraphCache, a temporary directory by default.
+ */
+public class AnalysisDaemon {
+
+    public static final String DEFAULT_ADDRESS = "7878";
+    public static final int DEFAULT_CACHE_ENTRIES = 1024;
+    public static final double DEFAULT_MAX_HEAP_FRACTION = 0.8;
+    public static final int DEFAULT_POLL_SECONDS = 2;
+
+    /* Least recently used map, evicting beyond maxSize. Callers synchronize on it. */
+    private static final class Lru<K, V> extends LinkedHashMap<K, V> {
+
+        private final int maxSize;
+
+        Lru(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxSize;
+        }
+
+        /* Drops the least recently used half, at least one entry, returns how many. */
+        int evictOlderHalf() {
+            int evict = (size() + 1) / 2;
+            Iterator<K> keys = keySet().iterator();
+            for (int i = 0; i < evict; i++) {
+                keys.next();
+                keys.remove();
+            }
+            return evict;
+        }
+    }
+
+    private final String inputPath;
+    private final Supplier<IFDSSetUp> setUpFactory;
+    /* heap pools whose usage after a collection is checked against the limit */
+    private final List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+    private final Lru<String, String> responses;
+    private final Lru<String, StringQueries> queries;
+    /* requests share the view, a reload replaces it */
+    private final ReadWriteLock viewLock = new ReentrantReadWriteLock();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong memoryEvictions = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+    /* collections over the limit, summed over the pools, that entries were already dropped for */
+    private final AtomicLong handledOverLimit = new AtomicLong();
+    private IFDSSetUp setUp;
+    private byte[] fingerprint;
+
+    public AnalysisDaemon(String inputPath, Supplier<IFDSSetUp> setUpFactory, int cacheEntries,
+                          double maxHeapFraction) {
+        this.inputPath = inputPath;
+        this.setUpFactory = setUpFactory;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            long max = pool.getUsage().getMax();
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported() && max > 0) {
+                pool.setCollectionUsageThreshold((long) (max * maxHeapFraction));
+                heapPools.add(pool);
+            }
+        }
+        this.responses = new Lru<>(cacheEntries);
+        this.queries = new Lru<>(Math.max(1, cacheEntries / 16));
+        reload();
+    }
+
+    public static void main(String[] args) throws IOException {
+        String inputPath = args.length > 0 ? args[0] : IFDSSetUp.DEFAULT_INPUT_PATH;
+        String address = args.length > 1 ? args[1] : DEFAULT_ADDRESS;
+        int cacheEntries = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_CACHE_ENTRIES;
+        double maxHeapFraction = args.length > 3 ? Double.parseDouble(args[3]) : DEFAULT_MAX_HEAP_FRACTION;
+        int pollSeconds = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_POLL_SECONDS;
+
+        // call graphs are built once and memory-mapped back on later requests and restarts
+        Path callGraphs = Path.of(System.getProperty("ifds.callGraphCache",
+                Path.of(System.getProperty("java.io.tmpdir"), "ifds-daemon").toString()));
+        AnalysisDaemon daemon = new AnalysisDaemon(inputPath, () -> {
+            IFDSSetUp setUp = new IFDSSetUp();
+            setUp.setCallGraphCacheDirectory(callGraphs);
+            return setUp;
+        }, cacheEntries, maxHeapFraction);
+        ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ifds-input-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(daemon::reloadIfChanged, pollSeconds, pollSeconds, TimeUnit.SECONDS);
+        daemon.serve(address);
+    }
+
+    /* Accepts connections until the process is stopped, one worker thread per connection. */
+    public void serve(String address) throws IOException {
+        SocketAddress socketAddress;
+        ServerSocketChannel server;
+        if (address.startsWith("unix:")) {
+            Path path = Path.of(address.substring("unix:".length()));
+            Files.deleteIfExists(path);
+            socketAddress = UnixDomainSocketAddress.of(path);
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            socketAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+            server = ServerSocketChannel.open();
+        }
+        ExecutorService workers = Executors.newCachedThreadPool();
+        try (server) {
+            server.bind(socketAddress);
+            System.out.println("Listening on " + socketAddress);
+            while (true) {
+                SocketChannel client = server.accept();
+                workers.submit(() -> handle(client));
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private void handle(SocketChannel client) {
+        try (client;
+             BufferedReader in = new BufferedReader(Channels.newReader(client, StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(Channels.newWriter(client, StandardCharsets.UTF_8))) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                if (!line.isBlank()) {
+                    out.println(request(line.strip()));
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // client went away
+        }
+    }
+
+    /* Answers one request line. Never throws, errors are reported as "ERR message". */
+    public String request(String line) {
+        requests.incrementAndGet();
+        String[] words = line.split("\\s+");
+        try {
+            switch (words[0]) {
+                case "stats":
+                    return "OK " + this;
+                case "reload":
+                    reload();
+                    return "OK";
+                case "analyze":
+                case "value":
+                    break;
+                default:
+                    return "ERR unknown request " + words[0];
+            }
+
+            String cached;
+            synchronized (responses) {
+                cached = responses.get(line);
+            }
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+            String response;
+            viewLock.readLock().lock();
+            try {
+                response = words[0].equals("analyze") ? analyze(words) : value(line, words);
+                // under the read lock, so a reload can not clear the cache between the solve and this
+                synchronized (responses) {
+                    responses.put(line, response);
+                }
+            } finally {
+                viewLock.readLock().unlock();
+            }
+            enforceMemoryLimit();
+            return response;
+        } catch (RuntimeException | StackOverflowError e) {
+            return "ERR " + e;
+        }
+    }
+
+    private String analyze(String[] words) {
+        if (words.length < 2) {
+            return "ERR usage: analyze <class> [engine]";
+        }
+        IFDSSetUp.Engine engine = words.length > 2 ? IFDSSetUp.Engine.valueOf(words[2]) : setUp.getEngine();
+        AnalysisRun run = setUp.analyze(words[1], setUp.findEntryMethod(words[1]), engine);
+        List<String> lines = new ArrayList<>();
+        for (Object environment : run.getResultsAtLastStatement()) {
+            Map<String, String> sorted = new TreeMap<>();
+            ((Map<?, ?>) environment).forEach((local, value) -> sorted.put(local.toString(), String.valueOf(value)));
+            lines.add(sorted.toString());
+        }
+        return "OK " + lines.size() + (lines.isEmpty() ? "" : "\n" + String.join("\n", lines));
+    }
+
+    private String value(String line, String[] words) {
+        // the method may be a signature with spaces in it
+        if (words.length < 2) {
+            return "ERR usage: value <class> <method> <index> <local>";
+        }
+        String method;
+        String[] rest;
+        int open = line.indexOf('<');
+        if (open >= 0 && line.indexOf('>', open) > 0) {
+            int close = line.indexOf('>', open);
+            method = line.substring(open, close + 1);
+            rest = line.substring(close + 1).strip().split("\\s+");
+        } else if (words.length == 5) {
+            method = words[2];
+            rest = Arrays.copyOfRange(words, 3, 5);
+        } else {
+            return "ERR usage: value <class> <method> <index> <local>";
+        }
+        if (rest.length != 2) {
+            return "ERR usage: value <class> <method> <index> <local>";
+        }
+
+        String className = words[1];
+        StringQueries classQueries;
+        synchronized (queries) {
+            classQueries = queries.get(className);
+        }
+        if (classQueries == null) {
+            classQueries = setUp.newQueries(setUp.findEntryMethod(className));
+            synchronized (queries) {
+                queries.put(className, classQueries);
+            }
+        }
+        SootMethod target = null;
+        for (SootMethod candidate : classQueries.getReachableMethods()) {
+            if (candidate.getName().equals(method) || candidate.getSignature().toString().equals(method)) {
+                target = candidate;
+                break;
+            }
+        }
+        if (target == null) {
+            return "ERR no method " + method + " reachable from " + className;
+        }
+        List<Stmt> stmts = target.getBody().getStmts();
+        int index = Integer.parseInt(rest[0]);
+        if (index < 0 || index >= stmts.size()) {
+            return "ERR statement index out of range: " + index;
+        }
+        Local local = target.getBody().getLocals().stream()
+                .filter(l -> l.getName().equals(rest[1]))
+                .findFirst()
+                .orElse(null);
+        if (local == null) {
+            return "ERR no local " + rest[1] + " in " + target.getSignature();
+        }
+        return "OK " + classQueries.valueOf(stmts.get(index), local);
+    }
+
+    /* Drops the older half of the responses, or of the queries if there are none, once for every
+       collection that left a heap pool over the limit since the last time. */
+    private void enforceMemoryLimit() {
+        long overLimit = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            overLimit += pool.getCollectionUsageThresholdCount();
+        }
+        long handled = handledOverLimit.get();
+        if (overLimit <= handled || !handledOverLimit.compareAndSet(handled, overLimit)) {
+            return;
+        }
+        int evicted;
+        synchronized (responses) {
+            evicted = responses.isEmpty() ? 0 : responses.evictOlderHalf();
+        }
+        if (evicted == 0) {
+            synchronized (queries) {
+                evicted = queries.isEmpty() ? 0 : queries.evictOlderHalf();
+            }
+        }
+        memoryEvictions.addAndGet(evicted);
+    }
+
+    /* Heap in use after the last collection of each pool, live data only. */
+    private long heapUsedAfterCollection() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            if (pool.getCollectionUsage() != null) {
+                used += pool.getCollectionUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    /* Creates a fresh view and drops everything computed on the old one. */
+    public void reload() {
+        viewLock.writeLock().lock();
+        try {
+            fingerprint = CallGraphCache.fingerprint(inputPath);
+            IFDSSetUp fresh = setUpFactory.get();
+            fresh.setupView(inputPath);
+            setUp = fresh;
+            synchronized (responses) {
+                responses.clear();
+            }
+            synchronized (queries) {
+                queries.clear();
+            }
+            reloads.incrementAndGet();
+        } finally {
+            viewLock.writeLock().unlock();
+        }
+    }
+
+    void reloadIfChanged() {
+        try {
+            if (!Arrays.equals(fingerprint, CallGraphCache.fingerprint(inputPath))) {
+                System.out.println("Input changed, reloading " + inputPath);
+                reload();
+            }
+        } catch (UncheckedIOException e) {
+            // the input is being rewritten, try again on the next poll
+        }
+    }
+
+    @Override
+    public String toString() {
+        int cachedResponses;
+        int cachedQueries;
+        synchronized (responses) {
+            cachedResponses = responses.size();
+        }
+        synchronized (queries) {
+            cachedQueries = queries.size();
+        }
+        return "requests=" + requests.get() + " hits=" + hits.get() + " responses=" + cachedResponses
+                + " queries=" + cachedQueries + " memoryEvictions=" + memoryEvictions.get()
+                + " reloads=" + reloads.get() + " heapLiveMB=" + heapUsedAfterCollection() / (1024 * 1024)
+                + " heapMaxMB=" + Runtime.getRuntime().maxMemory() / (1024 * 1024);
+    }
+}
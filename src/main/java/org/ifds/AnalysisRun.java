@@ -0,0 +1,254 @@
+package org.ifds;
+
+import heros.InterproceduralCFG;
+import heros.solver.IDESolver;
+import heros.solver.IFDSSolver;
+import sootup.core.jimple.basic.Local;
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.model.SootMethod;
+import sootup.core.types.NullType;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The outcome of analyzing one entry point: the solved analysis and the per-run state that goes
+ * with it. Runs share nothing mutable, so several of them can be solved at the same time, see
+ * {@link IFDSSetUp#executeBatch}.
+ */
+public class AnalysisRun {
+
+    private final String targetClassName;
+    private final IFDSSetUp.Engine engine;
+    private final SootMethod entryMethod;
+    private final IDESolver<Stmt, ?, SootMethod, ?, InterproceduralCFG<Stmt, SootMethod>> solver;
+    private final InterproceduralCFG<Stmt, SootMethod> icfg;
+    private final WideningPolicy widening;
+    private final CachingFlowFunctions<?> flowFunctionCache;
+    private final SolverMetrics metrics;
+    private final SolveBudget budget;
+    private final CalleeContextCache calleeContexts;
+    private final PhaseTimings timings;
+    private final boolean icfgFromCache;
+    private final long pathEdges;
+    private final boolean released;
+    private final Throwable failure;
+
+    AnalysisRun(String targetClassName, IFDSSetUp.Engine engine, SootMethod entryMethod,
+                IDESolver<Stmt, ?, SootMethod, ?, InterproceduralCFG<Stmt, SootMethod>> solver,
+                InterproceduralCFG<Stmt, SootMethod> icfg, WideningPolicy widening,
+                CachingFlowFunctions<?> flowFunctionCache, SolverMetrics metrics, SolveBudget budget,
+                CalleeContextCache calleeContexts, PhaseTimings timings, boolean icfgFromCache) {
+        this.targetClassName = targetClassName;
+        this.engine = engine;
+        this.entryMethod = entryMethod;
+        this.solver = solver;
+        this.icfg = icfg;
+        this.widening = widening;
+        this.flowFunctionCache = flowFunctionCache;
+        this.metrics = metrics;
+        this.budget = budget;
+        this.calleeContexts = calleeContexts;
+        this.timings = timings;
+        this.icfgFromCache = icfgFromCache;
+        this.pathEdges = 0;
+        this.released = false;
+        this.failure = null;
+    }
+
+    /* A copy of a solved run without the solver and everything only it needs. */
+    private AnalysisRun(AnalysisRun solved) {
+        this.targetClassName = solved.targetClassName;
+        this.engine = solved.engine;
+        this.entryMethod = solved.entryMethod;
+        this.solver = null;
+        this.icfg = null;
+        this.widening = solved.widening;
+        this.flowFunctionCache = null;
+        this.metrics = solved.metrics;
+        this.budget = solved.budget;
+        this.calleeContexts = solved.calleeContexts;
+        this.timings = solved.timings;
+        this.icfgFromCache = solved.icfgFromCache;
+        this.pathEdges = solved.getPathEdges();
+        this.released = true;
+        this.failure = null;
+    }
+
+    private AnalysisRun(String targetClassName, IFDSSetUp.Engine engine, Throwable failure) {
+        this.targetClassName = targetClassName;
+        this.engine = engine;
+        this.entryMethod = null;
+        this.solver = null;
+        this.icfg = null;
+        this.widening = null;
+        this.flowFunctionCache = null;
+        this.metrics = null;
+        this.budget = null;
+        this.calleeContexts = null;
+        this.timings = new PhaseTimings();
+        this.icfgFromCache = false;
+        this.pathEdges = 0;
+        this.released = false;
+        this.failure = failure;
+    }
+
+    static AnalysisRun failed(String targetClassName, IFDSSetUp.Engine engine, Throwable failure) {
+        return new AnalysisRun(targetClassName, engine, failure);
+    }
+
+    public String getTargetClassName() {
+        return targetClassName;
+    }
+
+    public IFDSSetUp.Engine getEngine() {
+        return engine;
+    }
+
+    /* null if the run failed */
+    public SootMethod getEntryMethod() {
+        return entryMethod;
+    }
+
+    /* A copy that no longer refers to the solver, its results or the interprocedural CFG, so they
+       can be collected once the results have been exported, see IFDSSetUp.setReleaseAfterExport. */
+    AnalysisRun released() {
+        return isFailed() || released ? this : new AnalysisRun(this);
+    }
+
+    /* Whether the solver was released after its results were exported. Only the statistics are left. */
+    public boolean isReleased() {
+        return released;
+    }
+
+    /* null if the run failed or was released */
+    public IDESolver<Stmt, ?, SootMethod, ?, InterproceduralCFG<Stmt, SootMethod>> getSolver() {
+        return solver;
+    }
+
+    /* The interprocedural CFG the run was solved over, null if the run failed or was released */
+    public InterproceduralCFG<Stmt, SootMethod> getInterproceduralCFG() {
+        return icfg;
+    }
+
+    public WideningPolicy getWideningPolicy() {
+        return widening;
+    }
+
+    /* The targets memo, null if it was disabled, the environment engine ran, or the run failed or was released */
+    public CachingFlowFunctions<?> getFlowFunctionCache() {
+        return flowFunctionCache;
+    }
+
+    /* null if metrics were not collected or the run failed, see IFDSSetUp.setCollectMetrics */
+    public SolverMetrics getMetrics() {
+        return metrics;
+    }
+
+    /* null if the solve was not limited, see IFDSSetUp.setSolveBudget */
+    public SolveBudget getBudget() {
+        return budget;
+    }
+
+    /* The entry contexts callees were analyzed in, null unless the environment engine ran with the cache. */
+    public CalleeContextCache getCalleeContexts() {
+        return calleeContexts;
+    }
+
+    /* Whether the solve hit a limit. Its results are sound, but everything it had not solved by then is TOP. */
+    public boolean isPartial() {
+        return budget != null && budget.isExhausted();
+    }
+
+    /* Time to build or load the interprocedural CFG, call graph included. */
+    public long getIcfgNanos() {
+        return timings.getNanos(PhaseTimings.Phase.CALL_GRAPH) + timings.getNanos(PhaseTimings.Phase.ICFG);
+    }
+
+    /* Whether the call graph was loaded from a CallGraphCache rather than built. */
+    public boolean isIcfgFromCache() {
+        return icfgFromCache;
+    }
+
+    /* Edges the solver propagated. */
+    public long getPathEdges() {
+        return released || solver == null ? pathEdges : solver.propagationCount;
+    }
+
+    /* Time to solve, excluding the interprocedural CFG. */
+    public long getSolveNanos() {
+        return timings.getNanos(PhaseTimings.Phase.SOLVE);
+    }
+
+    /* Time per phase, including the setup of the view the run was solved on. */
+    public PhaseTimings getTimings() {
+        return timings;
+    }
+
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /* The values at the last statement of the entry method, in the same shape for every engine. */
+    public Set<?> getResultsAtLastStatement() {
+        checkNotReleased();
+        return resultsAtLastStatement(engine, entryMethod, solver);
+    }
+
+    public Set<?> getResultsAt(Stmt stmt) {
+        checkNotReleased();
+        return resultsAt(engine, solver, stmt);
+    }
+
+    private void checkNotReleased() {
+        if (released) {
+            throw new IllegalStateException("The results of " + targetClassName
+                    + " were released after the export, read them from the result file");
+        }
+    }
+
+    static Set<?> resultsAtLastStatement(IFDSSetUp.Engine engine, SootMethod entryMethod,
+            IDESolver<Stmt, ?, SootMethod, ?, InterproceduralCFG<Stmt, SootMethod>> analysis) {
+        List<Stmt> stmts = entryMethod.getBody().getStmts();
+        return resultsAt(engine, analysis, stmts.get(stmts.size() - 1));
+    }
+
+    @SuppressWarnings("unchecked")
+    static Set<?> resultsAt(IFDSSetUp.Engine engine,
+            IDESolver<Stmt, ?, SootMethod, ?, InterproceduralCFG<Stmt, SootMethod>> analysis, Stmt stmt) {
+        Set<?> rawSet;
+        if (engine == IFDSSetUp.Engine.IDE) {
+            Map<Local, String> env = new HashMap<>();
+            ((Map<Local, String>) analysis.resultsAt(stmt)).forEach((local, value) -> {
+                if (!StringLattice.isBottom(value) && !local.getType().equals(NullType.getInstance())) {
+                    env.put(local, value);
+                }
+            });
+            rawSet = Collections.singleton(env);
+        } else {
+            rawSet = ((IFDSSolver<Stmt, ?, SootMethod, ?>) analysis).ifdsResultsAt(stmt);
+            if (engine == IFDSSetUp.Engine.IFDS_PER_LOCAL) {
+                /* rebuild the per-local view so all engines report the same shape */
+                rawSet = Collections.singleton(LocalStringFact.toEnvironment((Set<LocalStringFact>) rawSet));
+            }
+        }
+        return rawSet;
+    }
+
+    @Override
+    public String toString() {
+        if (isFailed()) {
+            return targetClassName + " (" + engine + "): failed with " + failure;
+        }
+        return targetClassName + " (" + engine + "): icfg " + getIcfgNanos() / 1_000_000 + " ms"
+                + (icfgFromCache ? " (cached)" : "") + ", solve " + getSolveNanos() / 1_000_000 + " ms, "
+                + getPathEdges() + " path edges" + (isPartial() ? ", partial: " + budget.getReason() : "");
+    }
+}
@@ -0,0 +1,56 @@
+package org.ifds;
+
+import sootup.core.model.SootMethod;
+
+import java.util.List;
+
+/**
+ * Splits the program into application and library classes by package prefix. The analysis does
+ * not descend into library methods: a call into the library either has a summary in the
+ * {@link StringApiModels}, or its result is unknown.
+ */
+public final class AnalysisScope {
+
+    private static final AnalysisScope EVERYTHING = new AnalysisScope(List.of());
+    private static final AnalysisScope JDK = new AnalysisScope(List.of("java.", "javax.", "jdk.", "sun.", "com.sun."));
+
+    private final List<String> libraryPrefixes;
+
+    private AnalysisScope(List<String> libraryPrefixes) {
+        this.libraryPrefixes = List.copyOf(libraryPrefixes);
+    }
+
+    /* Every class is application code, i.e. the analysis descends into every body it reaches. */
+    public static AnalysisScope everything() {
+        return EVERYTHING;
+    }
+
+    /* The JDK packages are library code. */
+    public static AnalysisScope jdk() {
+        return JDK;
+    }
+
+    /* Classes whose fully qualified name starts with any of the prefixes are library code. */
+    public static AnalysisScope withLibraryPrefixes(List<String> libraryPrefixes) {
+        return new AnalysisScope(libraryPrefixes);
+    }
+
+    public boolean isLibrary(SootMethod method) {
+        String className = method.getDeclaringClassType().getFullyQualifiedName();
+        for (String prefix : libraryPrefixes) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<String> getLibraryPrefixes() {
+        return libraryPrefixes;
+    }
+
+    @Override
+    public String toString() {
+        return libraryPrefixes.isEmpty() ? "everything" : "library " + libraryPrefixes;
+    }
+}
@@ -0,0 +1,86 @@
+package org.ifds;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Thread-safe cache holding at most maxSize entries. When it is full, about a quarter of the entries
+ * is dropped to make room, in whatever order the map iterates them: eviction ignores recency and use,
+ * so an entry in constant use can be dropped and loaded again. It only suits values that are cheap to
+ * recompute, in exchange it takes no lock. Hits, misses and evictions are counted.
+ */
+public class BoundedCache<K, V> {
+
+    private final int maxSize;
+    private final Map<K, V> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public BoundedCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = entries.get(key);
+        if (value != null) {
+            hits.incrementAndGet();
+            return value;
+        }
+        misses.incrementAndGet();
+        value = loader.apply(key);
+        if (entries.size() >= maxSize) {
+            evict();
+        }
+        V existing = entries.putIfAbsent(key, value);
+        return existing == null ? value : existing;
+    }
+
+    /* Drops about a quarter of the entries. */
+    private void evict() {
+        int toRemove = Math.max(1, maxSize / 4);
+        Iterator<K> it = entries.keySet().iterator();
+        while (toRemove-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("size=%d hits=%d misses=%d evictions=%d hitRate=%.2f",
+                size(), getHits(), getMisses(), getEvictions(), getHitRate());
+    }
+}
@@ -0,0 +1,90 @@
+package org.ifds;
+
+import heros.FlowFunction;
+import heros.FlowFunctions;
+import heros.InterproceduralCFG;
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.model.SootMethod;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Applies the flow functions of a problem until its {@link SolveBudget} is exhausted. From then on,
+ * calls are no longer descended into, and every other flow function maps any fact to the facts
+ * saying that every string local of the method is TOP. A statement reached after the budget ran
+ * out therefore joins TOP into whatever it had, so partial results are sound but imprecise.
+ *
+ * A call that is not descended into any more has no return flow to define its result. Its
+ * call-to-return flow gives the TOP facts as well, so the result is TOP at the return site rather
+ * than missing. The call sites are remembered, so this does not depend on the solver checking the
+ * budget again between the call flow and the call-to-return flow.
+ */
+public class BudgetedFlowFunctions<D> implements FlowFunctions<Stmt, D, SootMethod> {
+
+    private final FlowFunctions<Stmt, D, SootMethod> delegate;
+    private final InterproceduralCFG<Stmt, SootMethod> icfg;
+    private final SolveBudget budget;
+    private final Function<SootMethod, Set<D>> topFacts;
+    private final Map<SootMethod, Set<D>> topFactsPerMethod = new ConcurrentHashMap<>();
+    /* calls whose call flow was cut off by the budget */
+    private final Set<Stmt> cutCallSites = ConcurrentHashMap.newKeySet();
+
+    /* topFacts gives the facts that make every string local of a method TOP */
+    public BudgetedFlowFunctions(FlowFunctions<Stmt, D, SootMethod> delegate,
+                                 InterproceduralCFG<Stmt, SootMethod> icfg, SolveBudget budget,
+                                 Function<SootMethod, Set<D>> topFacts) {
+        this.delegate = delegate;
+        this.icfg = icfg;
+        this.budget = budget;
+        this.topFacts = topFacts;
+    }
+
+    @Override
+    public FlowFunction<D> getNormalFlowFunction(Stmt curr, Stmt succ) {
+        return budgeted(curr, delegate.getNormalFlowFunction(curr, succ));
+    }
+
+    @Override
+    public FlowFunction<D> getCallFlowFunction(Stmt callStmt, SootMethod destinationMethod) {
+        FlowFunction<D> flowFunction = delegate.getCallFlowFunction(callStmt, destinationMethod);
+        return source -> {
+            if (budget.check()) {
+                cutCallSites.add(callStmt);
+                return Collections.emptySet();
+            }
+            return flowFunction.computeTargets(source);
+        };
+    }
+
+    @Override
+    public FlowFunction<D> getReturnFlowFunction(Stmt callSite, SootMethod calleeMethod, Stmt exitStmt,
+                                                 Stmt returnSite) {
+        return budgeted(callSite, delegate.getReturnFlowFunction(callSite, calleeMethod, exitStmt, returnSite));
+    }
+
+    @Override
+    public FlowFunction<D> getCallToReturnFlowFunction(Stmt callSite, Stmt returnSite) {
+        FlowFunction<D> flowFunction = delegate.getCallToReturnFlowFunction(callSite, returnSite);
+        return source -> budget.check() || cutCallSites.contains(callSite)
+                ? topFactsOf(icfg.getMethodOf(callSite))
+                : flowFunction.computeTargets(source);
+    }
+
+    /* stmt is where the targets live, i.e. in the caller for return flows */
+    private FlowFunction<D> budgeted(Stmt stmt, FlowFunction<D> flowFunction) {
+        return source -> budget.check()
+                ? topFactsOf(icfg.getMethodOf(stmt))
+                : flowFunction.computeTargets(source);
+    }
+
+    private Set<D> topFactsOf(SootMethod method) {
+        if (method == null) {
+            return Collections.emptySet();
+        }
+        return topFactsPerMethod.computeIfAbsent(method, topFacts);
+    }
+}
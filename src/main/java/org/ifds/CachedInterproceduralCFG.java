@@ -0,0 +1,179 @@
+package org.ifds;
+
+import heros.InterproceduralCFG;
+import sootup.core.graph.StmtGraph;
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.model.SootMethod;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An interprocedural CFG over a call graph that was computed up front, e.g. loaded from a
+ * {@link CallGraphCache}. Intraprocedural edges come from the method bodies, without exceptional
+ * edges, like JimpleBasedInterproceduralCFG with exceptions disabled.
+ *
+ * Everything is computed in the constructor, so the graph is immutable and can be queried from
+ * several solver threads.
+ */
+public class CachedInterproceduralCFG implements InterproceduralCFG<Stmt, SootMethod> {
+
+    private final Map<Stmt, SootMethod> stmtToMethod = new HashMap<>();
+    private final Map<Stmt, Collection<SootMethod>> callees;
+    private final Map<SootMethod, Collection<Stmt>> callers = new HashMap<>();
+    private final Map<SootMethod, Set<Stmt>> callsFromWithin = new HashMap<>();
+    private final Set<Stmt> nonCallStartNodes = new HashSet<>();
+
+    /* methods are the reachable methods, callees the resolved targets of their call sites */
+    public CachedInterproceduralCFG(Collection<? extends SootMethod> methods,
+                                    Map<Stmt, ? extends Collection<SootMethod>> callees) {
+        this.callees = new HashMap<>();
+        callees.forEach((callSite, targets) -> this.callees.put(callSite, List.copyOf(targets)));
+
+        for (SootMethod method : methods) {
+            if (!method.hasBody()) {
+                continue;
+            }
+            Stmt start = method.getBody().getStmtGraph().getStartingStmt();
+            Set<Stmt> calls = new LinkedHashSet<>();
+            for (Stmt stmt : method.getBody().getStmts()) {
+                stmtToMethod.put(stmt, method);
+                if (stmt.containsInvokeExpr()) {
+                    calls.add(stmt);
+                } else if (stmt != start) {
+                    nonCallStartNodes.add(stmt);
+                }
+            }
+            callsFromWithin.put(method, Collections.unmodifiableSet(calls));
+        }
+        this.callees.forEach((callSite, targets) -> {
+            for (SootMethod target : targets) {
+                callers.computeIfAbsent(target, k -> new ArrayList<>()).add(callSite);
+            }
+        });
+    }
+
+    /* Snapshots the methods reachable from the entry method in another interprocedural CFG. */
+    public static CachedInterproceduralCFG of(InterproceduralCFG<Stmt, SootMethod> icfg, SootMethod entryMethod) {
+        Set<SootMethod> reached = new LinkedHashSet<>();
+        Map<Stmt, Collection<SootMethod>> callees = new HashMap<>();
+        Deque<SootMethod> worklist = new ArrayDeque<>();
+        reached.add(entryMethod);
+        worklist.add(entryMethod);
+        while (!worklist.isEmpty()) {
+            SootMethod method = worklist.poll();
+            if (!method.hasBody()) {
+                continue;
+            }
+            for (Stmt stmt : method.getBody().getStmts()) {
+                if (!stmt.containsInvokeExpr()) {
+                    continue;
+                }
+                Collection<SootMethod> targets = icfg.getCalleesOfCallAt(stmt);
+                callees.put(stmt, targets);
+                for (SootMethod target : targets) {
+                    if (reached.add(target)) {
+                        worklist.add(target);
+                    }
+                }
+            }
+        }
+        return new CachedInterproceduralCFG(reached, callees);
+    }
+
+    /* The call graph this CFG was built from, keyed by call site. */
+    public Map<Stmt, Collection<SootMethod>> getCallees() {
+        return Collections.unmodifiableMap(callees);
+    }
+
+    public Set<SootMethod> getMethods() {
+        return Collections.unmodifiableSet(callsFromWithin.keySet());
+    }
+
+    private StmtGraph<?> graphOf(Stmt stmt) {
+        return getMethodOf(stmt).getBody().getStmtGraph();
+    }
+
+    @Override
+    public SootMethod getMethodOf(Stmt n) {
+        return stmtToMethod.get(n);
+    }
+
+    @Override
+    public List<Stmt> getPredsOf(Stmt u) {
+        return graphOf(u).predecessors(u);
+    }
+
+    @Override
+    public List<Stmt> getSuccsOf(Stmt n) {
+        return graphOf(n).successors(n);
+    }
+
+    @Override
+    public Collection<SootMethod> getCalleesOfCallAt(Stmt n) {
+        return callees.getOrDefault(n, Collections.emptyList());
+    }
+
+    @Override
+    public Collection<Stmt> getCallersOf(SootMethod m) {
+        return callers.getOrDefault(m, Collections.emptyList());
+    }
+
+    @Override
+    public Set<Stmt> getCallsFromWithin(SootMethod m) {
+        return callsFromWithin.getOrDefault(m, Collections.emptySet());
+    }
+
+    @Override
+    public Collection<Stmt> getStartPointsOf(SootMethod m) {
+        if (!m.hasBody()) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(m.getBody().getStmtGraph().getStartingStmt());
+    }
+
+    @Override
+    public Collection<Stmt> getReturnSitesOfCallAt(Stmt n) {
+        return getSuccsOf(n);
+    }
+
+    @Override
+    public boolean isCallStmt(Stmt stmt) {
+        return stmt.containsInvokeExpr();
+    }
+
+    @Override
+    public boolean isExitStmt(Stmt stmt) {
+        return getSuccsOf(stmt).isEmpty();
+    }
+
+    @Override
+    public boolean isStartPoint(Stmt stmt) {
+        return getStartPointsOf(getMethodOf(stmt)).contains(stmt);
+    }
+
+    @Override
+    public Set<Stmt> allNonCallStartNodes() {
+        return Collections.unmodifiableSet(nonCallStartNodes);
+    }
+
+    @Override
+    public boolean isFallThroughSuccessor(Stmt stmt, Stmt succ) {
+        List<Stmt> succs = getSuccsOf(stmt);
+        return stmt.fallsThrough() && !succs.isEmpty() && succs.get(0) == succ;
+    }
+
+    @Override
+    public boolean isBranchTarget(Stmt stmt, Stmt succ) {
+        return stmt.branches() && getSuccsOf(stmt).contains(succ);
+    }
+}
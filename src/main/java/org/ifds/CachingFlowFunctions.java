@@ -0,0 +1,93 @@
+package org.ifds;
+
+import heros.FlowFunction;
+import heros.FlowFunctions;
+import heros.flowfunc.Identity;
+import heros.flowfunc.KillAll;
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.model.SootMethod;
+
+import java.util.Set;
+
+/**
+ * Memoizes the targets the flow functions of a problem compute, per edge and source fact. The flow
+ * functions themselves are cached by heros' FlowFunctionCache, which the solver wraps around the
+ * problem, see {@link SummaryIDESolver#flowFunctionCacheBuilder}; this only adds what heros does not
+ * cache. Only sound for flow functions without side effects, so problems that record state while
+ * computing targets must not use it.
+ *
+ * The cache is bounded and thread-safe, see {@link BoundedCache}.
+ */
+public class CachingFlowFunctions<D> implements FlowFunctions<Stmt, D, SootMethod> {
+
+    public static final int DEFAULT_SIZE = 100_000;
+
+    private record NormalKey(Stmt curr, Stmt succ) {
+    }
+
+    private record CallKey(Stmt callStmt, SootMethod destinationMethod) {
+    }
+
+    private record ReturnKey(Stmt callSite, SootMethod calleeMethod, Stmt exitStmt, Stmt returnSite) {
+    }
+
+    private record CallToReturnKey(Stmt callSite, Stmt returnSite) {
+    }
+
+    /* keyed on the edge, the flow function objects need not be the same every time */
+    private record TargetsKey(Object edge, Object source) {
+    }
+
+    private final FlowFunctions<Stmt, D, SootMethod> delegate;
+    private final BoundedCache<TargetsKey, Set<D>> targets;
+
+    public CachingFlowFunctions(FlowFunctions<Stmt, D, SootMethod> delegate, int targetsCacheSize) {
+        this.delegate = delegate;
+        this.targets = new BoundedCache<>(targetsCacheSize);
+    }
+
+    @Override
+    public FlowFunction<D> getNormalFlowFunction(Stmt curr, Stmt succ) {
+        return memoize(new NormalKey(curr, succ), delegate.getNormalFlowFunction(curr, succ));
+    }
+
+    @Override
+    public FlowFunction<D> getCallFlowFunction(Stmt callStmt, SootMethod destinationMethod) {
+        return memoize(new CallKey(callStmt, destinationMethod),
+                delegate.getCallFlowFunction(callStmt, destinationMethod));
+    }
+
+    @Override
+    public FlowFunction<D> getReturnFlowFunction(Stmt callSite, SootMethod calleeMethod, Stmt exitStmt,
+                                                 Stmt returnSite) {
+        return memoize(new ReturnKey(callSite, calleeMethod, exitStmt, returnSite),
+                delegate.getReturnFlowFunction(callSite, calleeMethod, exitStmt, returnSite));
+    }
+
+    @Override
+    public FlowFunction<D> getCallToReturnFlowFunction(Stmt callSite, Stmt returnSite) {
+        return memoize(new CallToReturnKey(callSite, returnSite),
+                delegate.getCallToReturnFlowFunction(callSite, returnSite));
+    }
+
+    private FlowFunction<D> memoize(Object edge, FlowFunction<D> flowFunction) {
+        if (flowFunction instanceof Identity || flowFunction instanceof KillAll) {
+            return flowFunction;
+        }
+        return source -> targets.get(new TargetsKey(edge, source), k -> flowFunction.computeTargets(source));
+    }
+
+    public BoundedCache<?, Set<D>> getTargetsCache() {
+        return targets;
+    }
+
+    /* Drops everything cached, e.g. to give memory back once a SolveBudget is exhausted. */
+    public void clear() {
+        targets.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "targets: " + targets;
+    }
+}
@@ -0,0 +1,349 @@
+package org.ifds;
+
+import sootup.analysis.interprocedural.icfg.JimpleBasedInterproceduralCFG;
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.model.SootMethod;
+import sootup.core.signatures.MethodSignature;
+import sootup.core.types.Type;
+import sootup.core.views.View;
+import sootup.java.core.JavaIdentifierFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Persists the call graph of an entry point, so later runs over the same classpath don't have to
+ * rebuild it. There is one file per input path and entry method, which records a hash of the
+ * classpath (file names, sizes and modification times). A file whose hash no longer matches is
+ * stale and gets rebuilt.
+ *
+ * A file holds a string table, the reachable methods and the call edges as (caller, statement
+ * index, callee) triples. It is read through a memory-mapped buffer. Call sites are identified by
+ * their index in the caller's body, which is stable for the same class files; the classpath hash
+ * is what tells whether they are still the same, so loading only looks at the callers' bodies.
+ */
+public class CallGraphCache {
+
+    private static final int MAGIC = 0x49464347;
+    private static final int VERSION = 2;
+
+    /* Whether the call graph was loaded from disk. */
+    public record Lookup(CachedInterproceduralCFG icfg, boolean warm) {
+    }
+
+    private final View<?> view;
+    private final String inputPath;
+    private final Path directory;
+    private volatile byte[] classpathHash;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private final AtomicInteger stale = new AtomicInteger();
+
+    public CallGraphCache(View<?> view, String inputPath, Path directory) {
+        this.view = view;
+        this.inputPath = inputPath;
+        this.directory = directory;
+    }
+
+    public Lookup get(SootMethod entryMethod) {
+        Path file = fileFor(entryMethod);
+        CachedInterproceduralCFG icfg = load(file);
+        if (icfg != null) {
+            hits.incrementAndGet();
+            return new Lookup(icfg, true);
+        }
+        misses.incrementAndGet();
+        icfg = build(entryMethod);
+        store(file, entryMethod, icfg);
+        return new Lookup(icfg, false);
+    }
+
+    /* Computes the call graph with SootUp's class hierarchy analysis. */
+    public CachedInterproceduralCFG build(SootMethod entryMethod) {
+        return CachedInterproceduralCFG.of(
+                new JimpleBasedInterproceduralCFG(view, entryMethod.getSignature(), false, false), entryMethod);
+    }
+
+    private Path fileFor(SootMethod entryMethod) {
+        String key = inputPath + '\n' + entryMethod.getSignature();
+        return directory.resolve(toHex(sha256(key.getBytes(StandardCharsets.UTF_8))) + ".cg");
+    }
+
+    /* null if there is no usable file */
+    private CachedInterproceduralCFG load(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CachedInterproceduralCFG icfg = read(buffer);
+            if (icfg == null) {
+                stale.incrementAndGet();
+            }
+            return icfg;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            // truncated or corrupt, rebuild it
+            stale.incrementAndGet();
+            return null;
+        }
+    }
+
+    private CachedInterproceduralCFG read(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return null;
+        }
+        byte[] hash = new byte[32];
+        buffer.get(hash);
+        if (!Arrays.equals(hash, classpathHash())) {
+            return null;
+        }
+
+        String[] strings = new String[buffer.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        JavaIdentifierFactory identifierFactory = JavaIdentifierFactory.getInstance();
+        SootMethod[] methods = new SootMethod[buffer.getInt()];
+        for (int i = 0; i < methods.length; i++) {
+            String declaringClass = strings[buffer.getInt()];
+            String name = strings[buffer.getInt()];
+            String returnType = strings[buffer.getInt()];
+            List<String> parameterTypes = new ArrayList<>();
+            for (int p = buffer.getInt(); p > 0; p--) {
+                parameterTypes.add(strings[buffer.getInt()]);
+            }
+            MethodSignature signature =
+                    identifierFactory.getMethodSignature(name, declaringClass, returnType, parameterTypes);
+            Optional<? extends SootMethod> method = view.getMethod(signature);
+            if (method.isEmpty()) {
+                return null;
+            }
+            methods[i] = method.get();
+        }
+
+        /* statement lists of the callers by method id, fetched once per caller */
+        List<List<Stmt>> stmts = new ArrayList<>(Collections.nCopies(methods.length, null));
+        Map<Stmt, Collection<SootMethod>> callees = new HashMap<>();
+        for (int e = buffer.getInt(); e > 0; e--) {
+            Stmt callSite = callSite(methods, stmts, buffer.getInt(), buffer.getInt());
+            SootMethod callee = methods[buffer.getInt()];
+            if (!callSite.containsInvokeExpr()) {
+                return null;
+            }
+            callees.computeIfAbsent(callSite, k -> new ArrayList<>()).add(callee);
+        }
+        // call sites without any target
+        for (int c = buffer.getInt(); c > 0; c--) {
+            callees.putIfAbsent(callSite(methods, stmts, buffer.getInt(), buffer.getInt()), new ArrayList<>());
+        }
+        return new CachedInterproceduralCFG(Arrays.asList(methods), callees);
+    }
+
+    private static Stmt callSite(SootMethod[] methods, List<List<Stmt>> stmts, int callerId, int index) {
+        List<Stmt> body = stmts.get(callerId);
+        if (body == null) {
+            body = methods[callerId].getBody().getStmts();
+            stmts.set(callerId, body);
+        }
+        return body.get(index);
+    }
+
+    private void store(Path file, SootMethod entryMethod, CachedInterproceduralCFG icfg) {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        Map<SootMethod, Integer> methodIds = new LinkedHashMap<>();
+        methodIds.put(entryMethod, 0);
+        for (SootMethod method : icfg.getMethods()) {
+            methodIds.putIfAbsent(method, methodIds.size());
+        }
+        for (Collection<SootMethod> targets : icfg.getCallees().values()) {
+            targets.forEach(target -> methodIds.putIfAbsent(target, methodIds.size()));
+        }
+        for (SootMethod method : methodIds.keySet()) {
+            MethodSignature signature = method.getSignature();
+            intern(strings, signature.getDeclClassType().getFullyQualifiedName());
+            intern(strings, signature.getName());
+            intern(strings, signature.getType().toString());
+            signature.getParameterTypes().forEach(type -> intern(strings, type.toString()));
+        }
+
+        try {
+            Files.createDirectories(directory);
+            Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.write(classpathHash());
+
+                out.writeInt(strings.size());
+                for (String string : strings.keySet()) {
+                    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+
+                out.writeInt(methodIds.size());
+                for (SootMethod method : methodIds.keySet()) {
+                    MethodSignature signature = method.getSignature();
+                    out.writeInt(strings.get(signature.getDeclClassType().getFullyQualifiedName()));
+                    out.writeInt(strings.get(signature.getName()));
+                    out.writeInt(strings.get(signature.getType().toString()));
+                    out.writeInt(signature.getParameterTypes().size());
+                    for (Type type : signature.getParameterTypes()) {
+                        out.writeInt(strings.get(type.toString()));
+                    }
+                }
+
+                List<int[]> edges = new ArrayList<>();
+                List<int[]> targetless = new ArrayList<>();
+                Map<SootMethod, Map<Stmt, Integer>> indices = new HashMap<>();
+                icfg.getCallees().forEach((callSite, targets) -> {
+                    SootMethod caller = icfg.getMethodOf(callSite);
+                    int callerId = methodIds.get(caller);
+                    int index = indices.computeIfAbsent(caller, CallGraphCache::stmtIndices).get(callSite);
+                    if (targets.isEmpty()) {
+                        targetless.add(new int[]{callerId, index});
+                    }
+                    for (SootMethod target : targets) {
+                        edges.add(new int[]{callerId, index, methodIds.get(target)});
+                    }
+                });
+                out.writeInt(edges.size());
+                for (int[] edge : edges) {
+                    out.writeInt(edge[0]);
+                    out.writeInt(edge[1]);
+                    out.writeInt(edge[2]);
+                }
+                out.writeInt(targetless.size());
+                for (int[] callSite : targetless) {
+                    out.writeInt(callSite[0]);
+                    out.writeInt(callSite[1]);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write call graph cache " + file, e);
+        }
+    }
+
+    private static void intern(Map<String, Integer> strings, String string) {
+        strings.putIfAbsent(string, strings.size());
+    }
+
+    private static Map<Stmt, Integer> stmtIndices(SootMethod method) {
+        List<Stmt> stmts = method.getBody().getStmts();
+        Map<Stmt, Integer> indices = new HashMap<>(stmts.size() * 2);
+        for (int i = 0; i < stmts.size(); i++) {
+            indices.putIfAbsent(stmts.get(i), i);
+        }
+        return indices;
+    }
+
+    /* Hash of the names, sizes and modification times of every file on the input path. */
+    private byte[] classpathHash() {
+        byte[] hash = classpathHash;
+        if (hash == null) {
+            hash = fingerprint(inputPath);
+            classpathHash = hash;
+        }
+        return hash;
+    }
+
+    /* Hash over the names, sizes and modification times of the files on the input path. */
+    static byte[] fingerprint(String inputPath) {
+        MessageDigest digest = newDigest();
+        for (String entry : inputPath.split(File.pathSeparator)) {
+            Path root = Paths.get(entry);
+            try {
+                if (Files.isDirectory(root)) {
+                    try (Stream<Path> files = Files.walk(root)) {
+                        for (Path f : files.filter(Files::isRegularFile).sorted().toList()) {
+                            update(digest, root.relativize(f).toString(), f);
+                        }
+                    }
+                } else if (Files.exists(root)) {
+                    update(digest, entry, root);
+                } else {
+                    digest.update(entry.getBytes(StandardCharsets.UTF_8));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not hash input path " + entry, e);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static void update(MessageDigest digest, String name, Path file) throws IOException {
+        digest.update(name.getBytes(StandardCharsets.UTF_8));
+        digest.update(ByteBuffer.allocate(16)
+                .putLong(Files.size(file))
+                .putLong(Files.getLastModifiedTime(file).toMillis())
+                .flip());
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        return newDigest().digest(bytes);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    /* Files that were found but had to be rebuilt. */
+    public int getStale() {
+        return stale.get();
+    }
+
+    @Override
+    public String toString() {
+        return "call graph cache: " + hits + " warm, " + misses + " cold (" + stale + " stale)";
+    }
+}
@@ -0,0 +1,127 @@
+package org.ifds;
+
+import sootup.core.jimple.basic.Local;
+import sootup.core.jimple.basic.Value;
+import sootup.core.jimple.common.ref.JParameterRef;
+import sootup.core.jimple.common.stmt.JIdentityStmt;
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.model.SootMethod;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Entry environments of the methods the environment engine descends into, keyed on the callee and
+ * the values of only those parameters the callee reads. The solver keeps one summary per
+ * callee and entry environment, so calls that agree on what the callee reads share the entry
+ * environment and the callee is analyzed once for all of them. Calls that differ only in a
+ * parameter the callee never reads would otherwise each analyze the callee again.
+ *
+ * A parameter the callee does not read enters as unknown. Both the contexts and the argument lists
+ * the callees were called with, which count the analyses narrowing avoided, are kept in a
+ * {@link BoundedCache}. An evicted context is built again when it recurs, equal to the one before,
+ * so the solver still finds its summary; the counts are exact until something is evicted and count
+ * a recurring context again after that.
+ */
+public class CalleeContextCache {
+
+    public static final int DEFAULT_SIZE = 1 << 16;
+
+    private record Context(SootMethod callee, List<String> values) {
+    }
+
+    private final BoundedCache<Context, LocalEnvironment> contexts;
+    /* the contexts the calls would have entered their callees in with all of their arguments */
+    private final BoundedCache<Context, Boolean> unnarrowed;
+    private final Map<SootMethod, boolean[]> readParameters = new ConcurrentHashMap<>();
+    private final LongAdder narrowed = new LongAdder();
+
+    public CalleeContextCache() {
+        this(DEFAULT_SIZE);
+    }
+
+    /* maxSize bounds the contexts and the argument lists each */
+    public CalleeContextCache(int maxSize) {
+        this.contexts = new BoundedCache<>(maxSize);
+        this.unnarrowed = new BoundedCache<>(maxSize);
+    }
+
+    /* argumentValues holds the value of each parameter, null if unknown, and is taken over. create
+       builds the entry environment from the values of the parameters the callee reads. */
+    public LocalEnvironment entryEnvironment(SootMethod callee, String[] argumentValues,
+                                             Function<String[], LocalEnvironment> create) {
+        boolean[] read = readParameters.computeIfAbsent(callee, CalleeContextCache::readParameters);
+        String[] allValues = null;
+        for (int i = 0; i < argumentValues.length; i++) {
+            if (!read[i] && argumentValues[i] != null) {
+                if (allValues == null) {
+                    allValues = argumentValues.clone();
+                }
+                argumentValues[i] = null;
+            }
+        }
+        Context context = new Context(callee, Arrays.asList(argumentValues));
+        if (allValues != null) {
+            narrowed.increment();
+            unnarrowed.get(new Context(callee, Arrays.asList(allValues)), c -> Boolean.TRUE);
+        } else {
+            unnarrowed.get(context, c -> Boolean.TRUE);
+        }
+        return contexts.get(context, c -> create.apply(argumentValues));
+    }
+
+    /* Whether each parameter is used past the statement that binds it. */
+    private static boolean[] readParameters(SootMethod method) {
+        List<Local> parameters = method.getBody().getParameterLocals();
+        boolean[] read = new boolean[parameters.size()];
+        for (Stmt stmt : method.getBody().getStmts()) {
+            if (stmt instanceof JIdentityStmt<?> identityStmt && identityStmt.getRightOp() instanceof JParameterRef) {
+                continue;
+            }
+            for (Value use : stmt.getUses()) {
+                int i = parameters.indexOf(use);
+                if (i >= 0) {
+                    read[i] = true;
+                }
+            }
+        }
+        return read;
+    }
+
+    /* Distinct entry contexts the callees were analyzed in. */
+    public long getContexts() {
+        return distinct(contexts);
+    }
+
+    /* Analyses of a callee saved by narrowing: distinct contexts with all arguments, less the distinct
+       narrowed ones. A call in a context the callee was entered in with the same arguments before is
+       not counted, the solver would have reused that summary anyway. */
+    public long getAvoided() {
+        return Math.max(0, distinct(unnarrowed) - distinct(contexts));
+    }
+
+    /* keys put into the cache, an evicted key that recurs counts twice */
+    private static long distinct(BoundedCache<Context, ?> cache) {
+        return cache.size() + cache.getEvictions();
+    }
+
+    /* Contexts dropped to stay within the bound. */
+    public long getEvictions() {
+        return contexts.getEvictions();
+    }
+
+    /* Calls that had the value of a parameter dropped because the callee does not read it. */
+    public long getNarrowed() {
+        return narrowed.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "callee contexts: " + getContexts() + " analyzed, " + getAvoided() + " re-analyses avoided, "
+                + getNarrowed() + " calls narrowed, " + getEvictions() + " evicted";
+    }
+}
@@ -0,0 +1,243 @@
+package org.ifds;
+
+import heros.DefaultSeeds;
+import heros.FlowFunction;
+import heros.FlowFunctions;
+import heros.InterproceduralCFG;
+import heros.flowfunc.Identity;
+import heros.flowfunc.KillAll;
+import sootup.analysis.interprocedural.ifds.DefaultJimpleIFDSTabulationProblem;
+import sootup.core.jimple.basic.Immediate;
+import sootup.core.jimple.basic.Local;
+import sootup.core.jimple.basic.Value;
+import sootup.core.jimple.common.constant.StringConstant;
+import sootup.core.jimple.common.expr.AbstractInvokeExpr;
+import sootup.core.jimple.common.stmt.AbstractDefinitionStmt;
+import sootup.core.jimple.common.stmt.JReturnStmt;
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.model.SootMethod;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Distributive variant of {@link IFDSAnalysisProblem}. Facts are single {@link LocalStringFact}s
+ * rather than whole environments, so every flow function maps one binding to the bindings it
+ * implies and the solver only hashes small interned objects.
+ *
+ * A value that depends on two locals at once (e.g. appending a local to another local) cannot be
+ * computed from a single fact and becomes TOP.
+ */
+public class DistributiveIFDSAnalysisProblem extends
+        DefaultJimpleIFDSTabulationProblem<LocalStringFact, InterproceduralCFG<Stmt, SootMethod>> {
+
+    private SootMethod entryMethod;
+    private StringAnalysisContext context;
+    private StringApiModels stringApiModels;
+    private int flowFunctionCacheSize = CachingFlowFunctions.DEFAULT_SIZE;
+    private int numThreads = 1;
+    private CachingFlowFunctions<LocalStringFact> cachingFlowFunctions;
+    private SolverMetrics metrics;
+    private SolveBudget budget;
+    protected InterproceduralCFG<Stmt, SootMethod> icfg;
+
+    public DistributiveIFDSAnalysisProblem(InterproceduralCFG<Stmt, SootMethod> icfg, SootMethod entryMethod,
+                                           StringAnalysisContext context) {
+        super(icfg);
+        this.icfg = icfg;
+        this.entryMethod = entryMethod;
+        this.context = context;
+        this.stringApiModels = context.getStringApiModels();
+    }
+
+    /* Threads the solver propagates on, must be called before the solver is created. */
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
+    @Override
+    public int numThreads() {
+        return numThreads;
+    }
+
+    /* Bounds the targets memoized per edge and source, must be called before the solver is created. 0 disables it. */
+    public void setFlowFunctionCacheSize(int flowFunctionCacheSize) {
+        this.flowFunctionCacheSize = flowFunctionCacheSize;
+    }
+
+    /* The targets memo, null if disabled or the solver has not been created yet */
+    public CachingFlowFunctions<LocalStringFact> getCachingFlowFunctions() {
+        return cachingFlowFunctions;
+    }
+
+    /* Records propagations into metrics, must be called before the solver is created. null disables it. */
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /* Limits the solve, must be called before the solver is created. null for no limits. */
+    public void setBudget(SolveBudget budget) {
+        this.budget = budget;
+    }
+
+    @Override
+    protected FlowFunctions<Stmt, LocalStringFact, SootMethod> createFlowFunctionsFactory() {
+        FlowFunctions<Stmt, LocalStringFact, SootMethod> flowFunctions = new FlowFunctions<>() {
+            @Override
+            public FlowFunction<LocalStringFact> getNormalFlowFunction(Stmt curr, Stmt succ) {
+                return getNormalFlow(curr, succ);
+            }
+
+            @Override
+            public FlowFunction<LocalStringFact> getCallFlowFunction(Stmt callStmt, SootMethod destinationMethod) {
+                return getCallFlow(callStmt, destinationMethod);
+            }
+
+            @Override
+            public FlowFunction<LocalStringFact> getReturnFlowFunction(Stmt callSite, SootMethod calleeMethod,
+                                                                       Stmt exitStmt, Stmt returnSite) {
+                return getReturnFlow(callSite, calleeMethod, exitStmt, returnSite);
+            }
+
+            @Override
+            public FlowFunction<LocalStringFact> getCallToReturnFlowFunction(Stmt callSite, Stmt returnSite) {
+                return getCallToReturnFlow(callSite, returnSite);
+            }
+        };
+        if (flowFunctionCacheSize > 0) {
+            cachingFlowFunctions = new CachingFlowFunctions<>(flowFunctions, flowFunctionCacheSize);
+            flowFunctions = cachingFlowFunctions;
+        }
+        if (budget != null) {
+            flowFunctions = new BudgetedFlowFunctions<>(flowFunctions, icfg, budget, this::topFacts);
+            if (cachingFlowFunctions != null) {
+                budget.whenExhausted(cachingFlowFunctions::clear);
+            }
+        }
+        return metrics == null ? flowFunctions : new InstrumentedFlowFunctions<>(flowFunctions, icfg, metrics,
+                fact -> fact.isZero() ? 0 : 1, fact -> !fact.isZero() && StringLattice.isTop(fact.getValue()));
+    }
+
+    /* What a flow function produces once the budget is exhausted. */
+    private Set<LocalStringFact> topFacts(SootMethod method) {
+        Set<LocalStringFact> facts = new LinkedHashSet<>();
+        facts.add(zeroValue());
+        for (Local local : method.getBody().getLocals()) {
+            if (StringTypes.mayHoldString(local.getType())) {
+                facts.add(LocalStringFact.of(local, StringFoldingVisitor.TOP));
+            }
+        }
+        return facts;
+    }
+
+    @Override
+    protected LocalStringFact createZeroValue() {
+        return LocalStringFact.zero();
+    }
+
+    @Override
+    public Map<Stmt, Set<LocalStringFact>> initialSeeds() {
+        return DefaultSeeds.make(Collections.singleton
+                (entryMethod.getBody().getStmtGraph().getStartingStmt()), zeroValue());
+    }
+
+    FlowFunction<LocalStringFact> getNormalFlow(Stmt curr, Stmt succ) {
+        if (curr instanceof AbstractDefinitionStmt<?, ?> definitionStmt
+                && definitionStmt.getLeftOp() instanceof Local) {
+            return source -> {
+                StringFoldingVisitor visitor = new StringFoldingVisitor(source, context);
+                curr.accept(visitor);
+                return visitor.getFactsOut();
+            };
+        }
+
+        return Identity.v();
+    }
+
+    FlowFunction<LocalStringFact> getCallFlow(Stmt callStmt, final SootMethod destinationMethod) {
+        AbstractInvokeExpr invokeExpr = callStmt.getInvokeExpr();
+        if (!context.descendsInto(invokeExpr, destinationMethod)) {
+            // modelled by the call-to-return flow
+            return KillAll.v();
+        }
+
+        final List<Immediate> args = invokeExpr.getArgs();
+        final int paramCount = Math.min(args.size(), destinationMethod.getParameterCount());
+
+        return source -> {
+            Set<LocalStringFact> res = new LinkedHashSet<>();
+            for (int i = 0; i < paramCount; i++) {
+                Immediate arg = args.get(i);
+                Local param = destinationMethod.getBody().getParameterLocal(i);
+                if (source.isZero()) {
+                    if (arg instanceof StringConstant constant) {
+                        res.add(LocalStringFact.of(param, constant.getValue()));
+                    }
+                } else if (arg.equals(source.getLocal())) {
+                    res.add(LocalStringFact.of(param, source.getValue()));
+                }
+            }
+            if (source.isZero()) {
+                res.add(source);
+            }
+            return LocalStringFact.compact(res);
+        };
+    }
+
+    FlowFunction<LocalStringFact> getReturnFlow(final Stmt callSite, final SootMethod calleeMethod,
+                                                Stmt exitStmt, Stmt returnSite) {
+        if (!context.descendsInto(callSite.getInvokeExpr(), calleeMethod)) {
+            return KillAll.v();
+        }
+
+        if (callSite instanceof AbstractDefinitionStmt<?, ?> definitionStmt
+                && definitionStmt.getLeftOp() instanceof Local leftOpLocal
+                && exitStmt instanceof JReturnStmt returnStmt) {
+            final Value op = returnStmt.getOp();
+            return source -> {
+                if (source.isZero() && op instanceof StringConstant constant) {
+                    return Collections.singleton(LocalStringFact.of(leftOpLocal, constant.getValue()));
+                } else if (!source.isZero() && op.equals(source.getLocal())) {
+                    return Collections.singleton(LocalStringFact.of(leftOpLocal, source.getValue()));
+                }
+                return Collections.emptySet();
+            };
+        }
+        return KillAll.v();
+    }
+
+    FlowFunction<LocalStringFact> getCallToReturnFlow(final Stmt callSite, Stmt returnSite) {
+        AbstractInvokeExpr invokeExpr = callSite.getInvokeExpr();
+        if (!stringApiModels.isModelled(invokeExpr)) {
+            // the return flow defines the result, everything else is untouched by the callee
+            if (callSite instanceof AbstractDefinitionStmt<?, ?> definitionStmt
+                    && definitionStmt.getLeftOp() instanceof Local leftOpLocal) {
+                /* a call no return flow defines the result of, e.g. into the library, returns something we don't
+                   know, a missing fact would let the join at the return site take the other branch's value */
+                boolean unknownResult = StringTypes.mayHoldString(leftOpLocal.getType())
+                        && icfg.getCalleesOfCallAt(callSite).stream()
+                                .noneMatch(callee -> context.descendsInto(invokeExpr, callee));
+                return source -> {
+                    if (source.isZero()) {
+                        return unknownResult
+                                ? Set.of(source, LocalStringFact.of(leftOpLocal, StringFoldingVisitor.TOP))
+                                : Collections.singleton(source);
+                    }
+                    return leftOpLocal.equals(source.getLocal())
+                            ? Collections.emptySet()
+                            : Collections.singleton(source);
+                };
+            }
+            return Identity.v();
+        }
+
+        return source -> {
+            StringFoldingVisitor visitor = new StringFoldingVisitor(source, context);
+            callSite.accept(visitor);
+            return visitor.getFactsOut();
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package org.ifds;
+
+import heros.EdgeFunction;
+import heros.InterproceduralCFG;
+import heros.solver.IFDSSolver;
+import sootup.analysis.interprocedural.ifds.JimpleIFDSSolver;
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.model.SootMethod;
+
+import java.util.Objects;
+
+/**
+ * IFDS solver of the environment engine that keeps every environment in the context it belongs to.
+ *
+ * The return flow of {@link IFDSAnalysisProblem} only sees the environment the callee exits with,
+ * so it rebinds the result in every caller environment that entered the callee in that context at
+ * the call site. Heros then propagates all of them into the context of each of those callers. An
+ * environment remembers the entry of the method it belongs to, see {@link LocalEnvironment#getEntry()},
+ * so one that arrives in a context it was not derived in is dropped here instead of becoming a path
+ * edge. Environments without an entry, those of the entry method and the TOP environments of an
+ * exhausted budget, belong to every context.
+ */
+public class EnvironmentIFDSSolver extends JimpleIFDSSolver<LocalEnvironment, InterproceduralCFG<Stmt, SootMethod>> {
+
+    public EnvironmentIFDSSolver(IFDSAnalysisProblem problem) {
+        super(problem);
+    }
+
+    @Override
+    protected void propagate(LocalEnvironment sourceVal, Stmt target, LocalEnvironment targetVal,
+                             EdgeFunction<IFDSSolver.BinaryDomain> f, Stmt relatedCallSite,
+                             boolean isUnbalancedReturn) {
+        // only edges at call sites can cross contexts
+        if (relatedCallSite != null && !isUnbalancedReturn && targetVal.getEntry() != null
+                && !Objects.equals(targetVal.getEntry(), sourceVal.getEntry())) {
+            return;
+        }
+        super.propagate(sourceVal, target, targetVal, f, relatedCallSite, isUnbalancedReturn);
+    }
+}
@@ -0,0 +1,547 @@
+package org.ifds;
+
+import heros.DefaultSeeds;
+import heros.EdgeFunction;
+import heros.EdgeFunctions;
+import heros.FlowFunction;
+import heros.FlowFunctions;
+import heros.InterproceduralCFG;
+import heros.JoinLattice;
+import heros.edgefunc.AllTop;
+import heros.edgefunc.EdgeIdentity;
+import heros.flowfunc.Identity;
+import heros.flowfunc.KillAll;
+import heros.template.DefaultIDETabulationProblem;
+import sootup.core.jimple.basic.Immediate;
+import sootup.core.jimple.basic.Local;
+import sootup.core.jimple.basic.Value;
+import sootup.core.jimple.common.constant.StringConstant;
+import sootup.core.jimple.common.expr.AbstractInstanceInvokeExpr;
+import sootup.core.jimple.common.expr.AbstractInvokeExpr;
+import sootup.core.jimple.common.expr.JNewExpr;
+import sootup.core.jimple.common.ref.JInstanceFieldRef;
+import sootup.core.jimple.common.ref.JStaticFieldRef;
+import sootup.core.jimple.common.stmt.AbstractDefinitionStmt;
+import sootup.core.jimple.common.stmt.JIdentityStmt;
+import sootup.core.jimple.common.stmt.JReturnStmt;
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.model.SootMethod;
+import sootup.core.types.NullType;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * IDE formulation of string folding. Facts are plain locals and the string each local holds is
+ * computed by the solver from {@link StringEdgeFunction}s over the {@link StringLattice}, so a new
+ * concatenation result does not create a new fact.
+ *
+ * Statements are interpreted the same way as in {@link DistributiveIFDSAnalysisProblem}, so both
+ * engines agree on the values at every statement. Neither agrees with {@link IFDSAnalysisProblem}
+ * on a value computed from two locals, or from one local twice, e.g. a.concat(b) or a + a: an
+ * edge function has a single input, so such a value is TOP here, where the environment engine,
+ * which sees every local in one fact, folds it.
+ */
+public class IDEAnalysisProblem extends
+        DefaultIDETabulationProblem<Stmt, Local, SootMethod, String, InterproceduralCFG<Stmt, SootMethod>> {
+
+    private SootMethod entryMethod;
+    private StringAnalysisContext context;
+    private StringApiModels stringApiModels;
+    private StaticFieldConstantTable fieldConstants;
+    private WideningPolicy widening;
+    private int flowFunctionCacheSize = CachingFlowFunctions.DEFAULT_SIZE;
+    private int numThreads = 1;
+    private Map<SootMethod, MethodSummary> methodSummaries = Collections.emptyMap();
+    /* per call site, the caller facts summarized callees generate the result from */
+    private final Map<Stmt, Optional<Map<Local, EdgeFunction<String>>>> summaryTransfers = new ConcurrentHashMap<>();
+    private CachingFlowFunctions<Local> cachingFlowFunctions;
+    private SolverMetrics metrics;
+    private SolveBudget budget;
+    protected InterproceduralCFG<Stmt, SootMethod> icfg;
+
+    /* How a statement defines a local: target := function(source) for each source, or
+       target := function(anything) when there are no sources. */
+    private record Transfer(Local target, List<Local> sources, StringEdgeFunction function) {
+
+        boolean generates(Local fact, Local zero) {
+            return fact == zero ? sources.isEmpty() : sources.contains(fact);
+        }
+    }
+
+    public IDEAnalysisProblem(InterproceduralCFG<Stmt, SootMethod> icfg, SootMethod entryMethod,
+                              StringAnalysisContext context) {
+        super(icfg);
+        this.icfg = icfg;
+        this.entryMethod = entryMethod;
+        this.context = context;
+        this.stringApiModels = context.getStringApiModels();
+        this.fieldConstants = context.getFieldConstants();
+        this.widening = context.getWidening();
+    }
+
+    @Override
+    protected Local createZeroValue() {
+        return new Local("<<zero>>", NullType.getInstance());
+    }
+
+    @Override
+    public Map<Stmt, Set<Local>> initialSeeds() {
+        return DefaultSeeds.make(Collections.singleton
+                (entryMethod.getBody().getStmtGraph().getStartingStmt()), zeroValue());
+    }
+
+    @Override
+    protected JoinLattice<String> createJoinLattice() {
+        return StringLattice.v();
+    }
+
+    @Override
+    protected EdgeFunction<String> createAllTopFunction() {
+        return new AllTop<>(StringLattice.v().topElement());
+    }
+
+    /* Summaries applied at call sites instead of descending into the callee, see MethodSummaryStore. */
+    public void setMethodSummaries(Map<SootMethod, MethodSummary> methodSummaries) {
+        this.methodSummaries = methodSummaries;
+        summaryTransfers.clear();
+    }
+
+    /* Threads the solver propagates on, must be called before the solver is created. */
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
+    @Override
+    public int numThreads() {
+        return numThreads;
+    }
+
+    /* Bounds the targets memoized per edge and source, and the flow functions heros caches, see
+       SummaryIDESolver#flowFunctionCacheBuilder. Must be called before the solver is created. 0 disables both. */
+    public void setFlowFunctionCacheSize(int flowFunctionCacheSize) {
+        this.flowFunctionCacheSize = flowFunctionCacheSize;
+    }
+
+    /* The targets memo, null if disabled or the solver has not been created yet */
+    public CachingFlowFunctions<Local> getCachingFlowFunctions() {
+        return cachingFlowFunctions;
+    }
+
+    public int getFlowFunctionCacheSize() {
+        return flowFunctionCacheSize;
+    }
+
+    /* Records propagations into metrics, must be called before the solver is created. null disables it. */
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /* Limits the solve, must be called before the solver is created. null for no limits. */
+    public void setBudget(SolveBudget budget) {
+        this.budget = budget;
+    }
+
+    @Override
+    protected FlowFunctions<Stmt, Local, SootMethod> createFlowFunctionsFactory() {
+        FlowFunctions<Stmt, Local, SootMethod> flowFunctions = new FlowFunctions<>() {
+            @Override
+            public FlowFunction<Local> getNormalFlowFunction(Stmt curr, Stmt succ) {
+                return transferFlow(normalTransfer(curr));
+            }
+
+            @Override
+            public FlowFunction<Local> getCallFlowFunction(Stmt callStmt, SootMethod destinationMethod) {
+                return getCallFlow(callStmt, destinationMethod);
+            }
+
+            @Override
+            public FlowFunction<Local> getReturnFlowFunction(Stmt callSite, SootMethod calleeMethod,
+                                                             Stmt exitStmt, Stmt returnSite) {
+                return getReturnFlow(callSite, calleeMethod, exitStmt);
+            }
+
+            @Override
+            public FlowFunction<Local> getCallToReturnFlowFunction(Stmt callSite, Stmt returnSite) {
+                return getCallToReturnFlow(callSite);
+            }
+        };
+        if (flowFunctionCacheSize > 0) {
+            cachingFlowFunctions = new CachingFlowFunctions<>(flowFunctions, flowFunctionCacheSize);
+            flowFunctions = cachingFlowFunctions;
+        }
+        if (budget != null) {
+            flowFunctions = new BudgetedFlowFunctions<>(flowFunctions, icfg, budget, this::topFacts);
+            if (cachingFlowFunctions != null) {
+                budget.whenExhausted(cachingFlowFunctions::clear);
+            }
+        }
+        return metrics == null ? flowFunctions : new InstrumentedFlowFunctions<>(flowFunctions, icfg, metrics,
+                fact -> fact == zeroValue() ? 0 : 1, fact -> false);
+    }
+
+    /* What a flow function produces once the budget is exhausted, the edge functions make them TOP. */
+    private Set<Local> topFacts(SootMethod method) {
+        Set<Local> facts = new LinkedHashSet<>();
+        facts.add(zeroValue());
+        for (Local local : method.getBody().getLocals()) {
+            if (StringTypes.mayHoldString(local.getType())) {
+                facts.add(local);
+            }
+        }
+        return facts;
+    }
+
+    @Override
+    protected EdgeFunctions<Stmt, Local, SootMethod, String> createEdgeFunctionsFactory() {
+        EdgeFunctions<Stmt, Local, SootMethod, String> edgeFunctions = new EdgeFunctions<>() {
+            @Override
+            public EdgeFunction<String> getNormalEdgeFunction(Stmt curr, Local currNode, Stmt succ, Local succNode) {
+                return transferEdge(normalTransfer(curr), currNode, succNode);
+            }
+
+            @Override
+            public EdgeFunction<String> getCallEdgeFunction(Stmt callStmt, Local srcNode,
+                                                            SootMethod destinationMethod, Local destNode) {
+                if (srcNode == zeroValue() && destNode != zeroValue()) {
+                    List<Immediate> args = callStmt.getInvokeExpr().getArgs();
+                    for (int i = 0; i < Math.min(args.size(), destinationMethod.getParameterCount()); i++) {
+                        if (args.get(i) instanceof StringConstant constant
+                                && destinationMethod.getBody().getParameterLocal(i).equals(destNode)) {
+                            return StringEdgeFunction.constant(constant.getValue(), widening);
+                        }
+                    }
+                }
+                return EdgeIdentity.v();
+            }
+
+            @Override
+            public EdgeFunction<String> getReturnEdgeFunction(Stmt callSite, SootMethod calleeMethod, Stmt exitStmt,
+                                                              Local exitNode, Stmt returnSite, Local retNode) {
+                if (exitNode == zeroValue() && retNode != zeroValue()
+                        && exitStmt instanceof JReturnStmt returnStmt
+                        && returnStmt.getOp() instanceof StringConstant constant) {
+                    return StringEdgeFunction.constant(constant.getValue(), widening);
+                }
+                return EdgeIdentity.v();
+            }
+
+            @Override
+            public EdgeFunction<String> getCallToReturnEdgeFunction(Stmt callSite, Local callNode,
+                                                                    Stmt returnSite, Local returnSideNode) {
+                Map<Local, EdgeFunction<String>> summary = summaryTransfer(callSite);
+                if (summary != null) {
+                    if (summary.containsKey(callNode) && returnSideNode.equals(resultOf(callSite))) {
+                        return summary.get(callNode);
+                    }
+                    return EdgeIdentity.v();
+                }
+                return transferEdge(callToReturnTransfer(callSite), callNode, returnSideNode);
+            }
+        };
+        return budget == null ? edgeFunctions : budgeted(edgeFunctions);
+    }
+
+    /* Once the budget is exhausted every new edge makes its target TOP, see BudgetedFlowFunctions. Edges
+       created before keep their function, and the zero fact keeps flowing unchanged. */
+    private EdgeFunctions<Stmt, Local, SootMethod, String> budgeted(
+            EdgeFunctions<Stmt, Local, SootMethod, String> edgeFunctions) {
+        return new EdgeFunctions<>() {
+            @Override
+            public EdgeFunction<String> getNormalEdgeFunction(Stmt curr, Local currNode, Stmt succ, Local succNode) {
+                return exhausted(currNode, succNode)
+                        ? StringEdgeFunction.top()
+                        : edgeFunctions.getNormalEdgeFunction(curr, currNode, succ, succNode);
+            }
+
+            @Override
+            public EdgeFunction<String> getCallEdgeFunction(Stmt callStmt, Local srcNode,
+                                                            SootMethod destinationMethod, Local destNode) {
+                return exhausted(srcNode, destNode)
+                        ? StringEdgeFunction.top()
+                        : edgeFunctions.getCallEdgeFunction(callStmt, srcNode, destinationMethod, destNode);
+            }
+
+            @Override
+            public EdgeFunction<String> getReturnEdgeFunction(Stmt callSite, SootMethod calleeMethod, Stmt exitStmt,
+                                                              Local exitNode, Stmt returnSite, Local retNode) {
+                return exhausted(exitNode, retNode)
+                        ? StringEdgeFunction.top()
+                        : edgeFunctions.getReturnEdgeFunction(callSite, calleeMethod, exitStmt, exitNode, returnSite,
+                                retNode);
+            }
+
+            @Override
+            public EdgeFunction<String> getCallToReturnEdgeFunction(Stmt callSite, Local callNode,
+                                                                    Stmt returnSite, Local returnSideNode) {
+                return exhausted(callNode, returnSideNode)
+                        ? StringEdgeFunction.top()
+                        : edgeFunctions.getCallToReturnEdgeFunction(callSite, callNode, returnSite, returnSideNode);
+            }
+
+            private boolean exhausted(Local source, Local target) {
+                return budget.isExhausted() && !(source == zeroValue() && target == zeroValue());
+            }
+        };
+    }
+
+    FlowFunction<Local> getCallFlow(Stmt callStmt, final SootMethod destinationMethod) {
+        AbstractInvokeExpr invokeExpr = callStmt.getInvokeExpr();
+        if (!context.descendsInto(invokeExpr, destinationMethod) || summaryTransfer(callStmt) != null) {
+            // modelled by the call-to-return flow
+            return KillAll.v();
+        }
+
+        final List<Immediate> args = invokeExpr.getArgs();
+        final int paramCount = Math.min(args.size(), destinationMethod.getParameterCount());
+
+        return source -> {
+            Set<Local> res = new LinkedHashSet<>();
+            for (int i = 0; i < paramCount; i++) {
+                Immediate arg = args.get(i);
+                if (source == zeroValue() ? arg instanceof StringConstant : arg.equals(source)) {
+                    res.add(destinationMethod.getBody().getParameterLocal(i));
+                }
+            }
+            if (source == zeroValue()) {
+                res.add(source);
+            }
+            return res;
+        };
+    }
+
+    FlowFunction<Local> getReturnFlow(final Stmt callSite, SootMethod calleeMethod, Stmt exitStmt) {
+        if (!context.descendsInto(callSite.getInvokeExpr(), calleeMethod)) {
+            return KillAll.v();
+        }
+
+        if (callSite instanceof AbstractDefinitionStmt<?, ?> definitionStmt
+                && definitionStmt.getLeftOp() instanceof Local leftOpLocal
+                && exitStmt instanceof JReturnStmt returnStmt) {
+            final Value op = returnStmt.getOp();
+            return source -> {
+                if (source == zeroValue() ? op instanceof StringConstant : op.equals(source)) {
+                    return Collections.singleton(leftOpLocal);
+                }
+                return Collections.emptySet();
+            };
+        }
+        return KillAll.v();
+    }
+
+    FlowFunction<Local> getCallToReturnFlow(final Stmt callSite) {
+        Map<Local, EdgeFunction<String>> summary = summaryTransfer(callSite);
+        if (summary != null) {
+            Local result = resultOf(callSite);
+            return source -> {
+                Set<Local> res = new LinkedHashSet<>();
+                if (!source.equals(result)) {
+                    res.add(source);
+                }
+                if (result != null && summary.containsKey(source)) {
+                    res.add(result);
+                }
+                return res;
+            };
+        }
+        Transfer transfer = callToReturnTransfer(callSite);
+        if (transfer != null) {
+            return transferFlow(transfer);
+        }
+        if (!stringApiModels.isModelled(callSite.getInvokeExpr())
+                && callSite instanceof AbstractDefinitionStmt<?, ?> definitionStmt
+                && definitionStmt.getLeftOp() instanceof Local leftOpLocal) {
+            // the return flow defines the result, everything else is untouched by the callee
+            return source -> leftOpLocal.equals(source) ? Collections.emptySet() : Collections.singleton(source);
+        }
+        return Identity.v();
+    }
+
+    private FlowFunction<Local> transferFlow(Transfer transfer) {
+        if (transfer == null) {
+            return Identity.v();
+        }
+        return source -> {
+            Set<Local> res = new LinkedHashSet<>();
+            if (!source.equals(transfer.target())) {
+                res.add(source);
+            }
+            if (transfer.generates(source, zeroValue())) {
+                res.add(transfer.target());
+            }
+            return res;
+        };
+    }
+
+    private EdgeFunction<String> transferEdge(Transfer transfer, Local currNode, Local succNode) {
+        if (transfer != null && succNode.equals(transfer.target()) && transfer.generates(currNode, zeroValue())) {
+            return transfer.function();
+        }
+        return EdgeIdentity.v();
+    }
+
+    /* Mirrors StringFoldingVisitor.caseAssignStmt and caseIdentityStmt. */
+    private Transfer normalTransfer(Stmt stmt) {
+        if (!(stmt instanceof AbstractDefinitionStmt<?, ?> definitionStmt)
+                || !(definitionStmt.getLeftOp() instanceof Local left)
+                || stmt instanceof JIdentityStmt<?>) {
+            return null;
+        }
+
+        Value right = definitionStmt.getRightOp();
+        if (right instanceof Local rLocal) {
+            return new Transfer(left, List.of(rLocal), StringEdgeFunction.identity());
+        } else if (right instanceof StringConstant constant) {
+            return new Transfer(left, List.of(), StringEdgeFunction.constant(constant.getValue(), widening));
+        } else if (right instanceof JNewExpr || right instanceof AbstractInvokeExpr) {
+            // new objects are initialised by <init>, invokes are handled at call sites
+            return null;
+        } else if (right instanceof JInstanceFieldRef) {
+            return new Transfer(left, List.of(), StringEdgeFunction.top());
+        } else if (right instanceof JStaticFieldRef fieldRef) {
+            String value = fieldConstants == null ? StringFoldingVisitor.TOP : fieldConstants.lookUp(fieldRef);
+            return new Transfer(left, List.of(), StringEdgeFunction.constant(value, widening));
+        }
+        return new Transfer(left, List.of(), StringEdgeFunction.top());
+    }
+
+    /* A modelled call, or a call no return flow defines the result of, e.g. into the library, which returns
+       something we don't know. Without a transfer the result would have no value at all, and the join at the
+       return site would take the value from the other branch. */
+    private Transfer callToReturnTransfer(Stmt callSite) {
+        Transfer transfer = stringApiTransfer(callSite);
+        if (transfer != null) {
+            return transfer;
+        }
+        AbstractInvokeExpr invokeExpr = callSite.getInvokeExpr();
+        Local result = resultOf(callSite);
+        if (result != null && !stringApiModels.isModelled(invokeExpr) && icfg.getCalleesOfCallAt(callSite).stream()
+                .noneMatch(callee -> context.descendsInto(invokeExpr, callee))) {
+            return new Transfer(result, List.of(), StringEdgeFunction.top());
+        }
+        return null;
+    }
+
+    /* Mirrors StringFoldingVisitor.stringApiCall. */
+    private Transfer stringApiTransfer(Stmt callSite) {
+        AbstractInvokeExpr iExpr = callSite.getInvokeExpr();
+        StringApiModel model = stringApiModels.lookup(iExpr);
+        if (model == null) {
+            return null;
+        }
+
+        Local target = null;
+        if (callSite instanceof AbstractDefinitionStmt<?, ?> definitionStmt) {
+            if (definitionStmt.getLeftOp() instanceof Local left) {
+                target = left;
+            }
+        } else if (stringApiModels.updatesReceiver(iExpr)) {
+            target = ((AbstractInstanceInvokeExpr) iExpr).getBase();
+        }
+        if (target == null) {
+            return null;
+        }
+
+        StringParts parts = model.apply(iExpr);
+        if (parts.isTop()) {
+            return new Transfer(target, List.of(), StringEdgeFunction.top());
+        }
+        List<Local> locals = parts.getLocals();
+        if (locals.isEmpty()) {
+            return new Transfer(target, List.of(), StringEdgeFunction.constant(literal(parts.getParts()), widening));
+        }
+        int at = parts.getParts().indexOf(locals.get(0));
+        if (locals.size() > 1 || parts.getParts().lastIndexOf(locals.get(0)) != at) {
+            // depends on two locals, or on one local twice, which a function of one input can't compute
+            return new Transfer(target, locals, StringEdgeFunction.top());
+        }
+        List<Object> all = parts.getParts();
+        return new Transfer(target, locals, StringEdgeFunction.concat(literal(all.subList(0, at)),
+                literal(all.subList(at + 1, all.size())), widening));
+    }
+
+    /* Concatenation of parts that are all literals. */
+    private static String literal(List<Object> parts) {
+        StringBuilder literal = new StringBuilder();
+        for (Object part : parts) {
+            literal.append((String) part);
+        }
+        return literal.toString();
+    }
+
+    private static Local resultOf(Stmt callSite) {
+        if (callSite instanceof AbstractDefinitionStmt<?, ?> definitionStmt
+                && definitionStmt.getLeftOp() instanceof Local left) {
+            return left;
+        }
+        return null;
+    }
+
+    /* The edge function from each caller fact the result is generated from, if every callee the analysis
+       would descend into has a summary covering this call site, null otherwise. Mirrors getCallFlow, the
+       callee's end summary and getReturnFlow. */
+    private Map<Local, EdgeFunction<String>> summaryTransfer(Stmt callSite) {
+        if (methodSummaries.isEmpty() || stringApiModels.isModelled(callSite.getInvokeExpr())) {
+            return null;
+        }
+        return summaryTransfers.computeIfAbsent(callSite, this::summarize).orElse(null);
+    }
+
+    private Optional<Map<Local, EdgeFunction<String>>> summarize(Stmt callSite) {
+        Collection<SootMethod> callees = interproceduralCFG().getCalleesOfCallAt(callSite);
+        if (callees.isEmpty()) {
+            return Optional.empty();
+        }
+        AbstractInvokeExpr call = callSite.getInvokeExpr();
+        List<Immediate> args = call.getArgs();
+        Map<Local, EdgeFunction<String>> transfer = new HashMap<>();
+        boolean summarized = false;
+        for (SootMethod callee : callees) {
+            if (!context.descendsInto(call, callee)) {
+                // contributes nothing to the result either way
+                continue;
+            }
+            summarized = true;
+            MethodSummary summary = methodSummaries.get(callee);
+            if (summary == null || !summary.covers(MethodSummary.ZERO)) {
+                return Optional.empty();
+            }
+            addSummaryEdge(transfer, zeroValue(), summary.getReturnFunction(MethodSummary.ZERO));
+            for (int i = 0; i < Math.min(args.size(), callee.getParameterCount()); i++) {
+                Immediate arg = args.get(i);
+                if (!(arg instanceof Local) && !(arg instanceof StringConstant)) {
+                    continue;
+                }
+                if (!summary.covers(i)) {
+                    // the callee was never analyzed with a value for this parameter
+                    return Optional.empty();
+                }
+                StringEdgeFunction function = summary.getReturnFunction(i);
+                if (function == null) {
+                    continue;
+                }
+                if (arg instanceof StringConstant constant) {
+                    addSummaryEdge(transfer, zeroValue(),
+                            StringEdgeFunction.constant(constant.getValue(), widening).composeWith(function));
+                } else {
+                    addSummaryEdge(transfer, (Local) arg, function);
+                }
+            }
+        }
+        return summarized ? Optional.of(transfer) : Optional.empty();
+    }
+
+    private static void addSummaryEdge(Map<Local, EdgeFunction<String>> transfer, Local source,
+                                       EdgeFunction<String> function) {
+        if (function != null) {
+            transfer.merge(source, function, EdgeFunction::joinWith);
+        }
+    }
+}
@@ -6,100 +6,191 @@ import heros.FlowFunctions;
 import heros.InterproceduralCFG;
 import heros.flowfunc.Identity;
 import heros.flowfunc.KillAll;
+import heros.solver.IFDSSolver;
 import sootup.analysis.interprocedural.ifds.DefaultJimpleIFDSTabulationProblem;
 import sootup.core.jimple.basic.Immediate;
 import sootup.core.jimple.basic.Local;
 import sootup.core.jimple.basic.Value;
 import sootup.core.jimple.common.constant.StringConstant;
 import sootup.core.jimple.common.expr.*;
-import sootup.core.jimple.common.ref.JStaticFieldRef;
 import sootup.core.jimple.common.stmt.*;
 import sootup.core.model.SootMethod;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class IFDSAnalysisProblem extends
-        DefaultJimpleIFDSTabulationProblem<Map<Local, String>, InterproceduralCFG<Stmt, SootMethod>> {
+        DefaultJimpleIFDSTabulationProblem<LocalEnvironment, InterproceduralCFG<Stmt, SootMethod>> {
 
     private SootMethod entryMethod;
-    private SootMethod clinit;
+    private StringAnalysisContext context;
+    private SolverMetrics metrics;
+    private SolveBudget budget;
     protected InterproceduralCFG<Stmt, SootMethod> icfg;
-    private Map<SootMethod, Map<Local, String>> methodToConstants;
+    private int numThreads = 1;
+    private final Map<SootMethod, LocalIndex> localIndices = new ConcurrentHashMap<>();
+    /* A call site and the environment it entered the callee with. */
+    private record CallContext(Stmt callSite, LocalEnvironment entry) {
+    }
+
+    /* Environments that reached each call site and entered the callee in a context. The return flow only
+       combines these with what the callee returns in that context, and it is called again for every caller
+       environment that enters a context later, so the result does not depend on the order of the calls.
+       Those of other caller contexts are dropped by EnvironmentIFDSSolver. Only needed while solving. */
+    private final Map<CallContext, Set<LocalEnvironment>> callerEnvironments = new ConcurrentHashMap<>();
+    /* equal environments reached along different paths are stored once */
+    private final InternPool<LocalEnvironment> environments = new InternPool<>();
+    private boolean narrowCalleeContexts = true;
+    private CalleeContextCache calleeContexts;
 
     public IFDSAnalysisProblem(InterproceduralCFG<Stmt, SootMethod> icfg, SootMethod entryMethod,
-                               SootMethod clinit) {
+                               StringAnalysisContext context) {
         super(icfg);
         this.icfg = icfg;
         this.entryMethod = entryMethod;
-        this.methodToConstants = new HashMap<>();
-        this.clinit = clinit;
+        this.context = context;
+    }
+
+    /* The environment the method was entered with, joined over the contexts the solver entered it in. A
+       local entered with different values is TOP, a parameter the method does not read is unknown, see
+       CalleeContextCache. null if the method was never descended into. Read from the results of the
+       solver, so the problem keeps no copy. */
+    public LocalEnvironment getEntryEnvironment(SootMethod method,
+                                                IFDSSolver<Stmt, LocalEnvironment, SootMethod, ?> solver) {
+        LocalEnvironment joined = null;
+        for (Stmt startPoint : icfg.getStartPointsOf(method)) {
+            for (LocalEnvironment environment : solver.ifdsResultsAt(startPoint)) {
+                LocalEnvironment entry = environment.getEntry();
+                if (entry != null) {
+                    joined = joined == null ? entry : join(joined, entry);
+                }
+            }
+        }
+        return joined;
     }
 
-    public Map<SootMethod, Map<Local, String>> getMethodToConstants() {
-        return this.getMethodToConstants();
+    /* Drops what the flow functions only need while solving, call once the solver has finished. */
+    public void solved() {
+        callerEnvironments.clear();
+    }
+
+    private static LocalEnvironment join(LocalEnvironment left, LocalEnvironment right) {
+        Map<Local, String> differing = new HashMap<>();
+        left.forEach((local, value) -> {
+            if (!value.equals(right.get(local))) {
+                differing.put(local, StringFoldingVisitor.TOP);
+            }
+        });
+        return left.withAll(differing);
+    }
+
+    /* Threads the solver propagates on, must be called before the solver is created. */
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
     }
 
+    @Override
+    public int numThreads() {
+        return numThreads;
+    }
+
+    /* Records propagations into metrics, must be called before the solver is created. null disables it. */
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /* Limits the solve, must be called before the solver is created. null for no limits. */
+    public void setBudget(SolveBudget budget) {
+        this.budget = budget;
+    }
+
+    /* Must be called before the solver is created. false enters every callee with all of its arguments. */
+    public void setNarrowCalleeContexts(boolean narrowCalleeContexts) {
+        this.narrowCalleeContexts = narrowCalleeContexts;
+    }
+
+    /* null if disabled or the solver has not been created yet */
+    public CalleeContextCache getCalleeContexts() {
+        return calleeContexts;
+    }
+
+    private LocalEnvironment intern(LocalEnvironment environment) {
+        return environments.intern(environment);
+    }
+
+    /* heros caches the flow functions per edge. Their targets are not memoized, see CachingFlowFunctions,
+       as the return flow depends on the environments recorded at call sites so far. */
     @Override
     protected FlowFunctions createFlowFunctionsFactory() {
-        return new FlowFunctions<Stmt, Map<Local, String>, SootMethod>() {
+        FlowFunctions<Stmt, LocalEnvironment, SootMethod> flowFunctions = new FlowFunctions<>() {
             @Override
-            public FlowFunction<Map<Local, String>> getNormalFlowFunction(Stmt curr, Stmt succ) {
+            public FlowFunction<LocalEnvironment> getNormalFlowFunction(Stmt curr, Stmt succ) {
                 return getNormalFlow(curr, succ);
             }
 
             @Override
-            public FlowFunction<Map<Local, String>> getCallFlowFunction(Stmt callStmt, SootMethod destinationMethod) {
+            public FlowFunction<LocalEnvironment> getCallFlowFunction(Stmt callStmt, SootMethod destinationMethod) {
                 return getCallFlow(callStmt, destinationMethod);
             }
 
             @Override
-            public FlowFunction<Map<Local, String>> getReturnFlowFunction(Stmt callSite, SootMethod calleeMethod, Stmt exitStmt, Stmt returnSite) {
+            public FlowFunction<LocalEnvironment> getReturnFlowFunction(Stmt callSite, SootMethod calleeMethod, Stmt exitStmt, Stmt returnSite) {
                 return getReturnFlow(callSite, calleeMethod, exitStmt, returnSite);
             }
 
             @Override
-            public FlowFunction<Map<Local, String>> getCallToReturnFlowFunction(Stmt callSite, Stmt returnSite) {
+            public FlowFunction<LocalEnvironment> getCallToReturnFlowFunction(Stmt callSite, Stmt returnSite) {
                 return getCallToReturnFlow(callSite, returnSite);
             }
         };
+        calleeContexts = narrowCalleeContexts ? new CalleeContextCache() : null;
+        if (budget != null) {
+            flowFunctions = new BudgetedFlowFunctions<>(flowFunctions, icfg, budget, this::topFacts);
+        }
+        return metrics == null ? flowFunctions : new InstrumentedFlowFunctions<>(flowFunctions, icfg, metrics,
+                LocalEnvironment::countKnown, environment -> environment.containsValue(StringFoldingVisitor.TOP));
+    }
+
+    /* What a flow function produces once the budget is exhausted. */
+    private Set<LocalEnvironment> topFacts(SootMethod method) {
+        return Collections.singleton(localIndex(method).topEnvironment());
+    }
+
+    /* Locals of a method are numbered once and shared by all of its environments. */
+    LocalIndex localIndex(SootMethod method) {
+        return localIndices.computeIfAbsent(method, LocalIndex::new);
     }
 
     @Override
-    protected Map<Local, String> createZeroValue() {
-        Map<Local, String> entryMap = new HashMap<>();
-        for (Local l : entryMethod.getBody().getLocals()) {
-            entryMap.put(l, "");
-        }
+    protected LocalEnvironment createZeroValue() {
+        return localIndex(entryMethod).unknownEnvironment();
+    }
 
-        return entryMap;
+    /* The zero value is an environment of the entry method, the solver must not add it at statements of
+       other methods. It reaches callees through the call flow like any other environment. */
+    @Override
+    public boolean autoAddZero() {
+        return false;
     }
 
     @Override
-    public Map<Stmt, Set<Map<Local, String>>> initialSeeds() {
+    public Map<Stmt, Set<LocalEnvironment>> initialSeeds() {
         return DefaultSeeds.make(Collections.singleton
                 (entryMethod.getBody().getStmtGraph().getStartingStmt()), zeroValue());
     }
 
 
-    FlowFunction<Map<Local, String>> getNormalFlow(Stmt curr, Stmt succ) {
-        final SootMethod m = interproceduralCFG().getMethodOf(curr);
-
+    FlowFunction<LocalEnvironment> getNormalFlow(Stmt curr, Stmt succ) {
         if (curr instanceof AbstractDefinitionStmt<?,?> definitionStmt) {
             final Value leftOp = definitionStmt.getLeftOp();
             if (leftOp instanceof Local leftOpLocal) {
-                return new FlowFunction<Map<Local, String>>() {
+                return new FlowFunction<LocalEnvironment>() {
                     @Override
-                    public Set<Map<Local, String>> computeTargets(final Map<Local, String> source) {
+                    public Set<LocalEnvironment> computeTargets(final LocalEnvironment source) {
 
-                        Set<Map<Local,String>> res = new LinkedHashSet<>();
-                        StringFoldingVisitor visitor = new StringFoldingVisitor(source);
-                        if (definitionStmt.getRightOp() instanceof JStaticFieldRef fieldRef) {
-                            visitor = new StringFoldingVisitor(source, clinit);
-                        }
+                        StringFoldingVisitor visitor = new StringFoldingVisitor(source, context);
                         curr.accept(visitor);
-                        res.add(visitor.getSetOut());
-                        methodToConstants.put(m, visitor.getSetOut());
-                        return res;
+                        return Collections.singleton(intern(visitor.getSetOut()));
 
                     }
                 };
@@ -109,72 +200,84 @@ public class IFDSAnalysisProblem extends
         return Identity.v();
     }
 
-    FlowFunction<Map<Local, String>> getCallFlow(Stmt callStmt, final SootMethod destinationMethod) {
-        final SootMethod m = interproceduralCFG().getMethodOf(callStmt);
-
+    FlowFunction<LocalEnvironment> getCallFlow(Stmt callStmt, final SootMethod destinationMethod) {
         AbstractInvokeExpr invokeExpr = callStmt.getInvokeExpr();
+        if (!context.descendsInto(invokeExpr, destinationMethod)) {
+            // modelled by the call-to-return flow
+            return KillAll.v();
+        }
         final List<Immediate> args = invokeExpr.getArgs();
 
-        return new FlowFunction<Map<Local, String>>() {
+        return new FlowFunction<LocalEnvironment>() {
 
             @Override
-            public Set<Map<Local, String>> computeTargets(Map<Local, String> source) {
-
-                /* Do not map parameters for <clinit */
-//                if (destinationMethod.getName().equals("<clinit>")) {
-//                    return Collections.emptySet();
-//                }
-
-                LinkedHashSet<Map<Local,String>> res = new LinkedHashSet<>();
-                Map<Local, String> constants = new HashMap<>();
-
-                for (int i = 0; i < destinationMethod.getParameterCount(); i++) {
+            public Set<LocalEnvironment> computeTargets(LocalEnvironment source) {
+                String[] values = new String[destinationMethod.getParameterCount()];
+                for (int i = 0; i < values.length; i++) {
                     if (args.get(i) instanceof Local argLocal) {
-                        constants.put(destinationMethod.getBody().getParameterLocal(i),
-                                source.get(argLocal));
+                        values[i] = source.get(argLocal);
                     }
                 }
 
-                /* Fill in the other locals we don't know */
-                for (Local l : destinationMethod.getBody().getLocals()) {
-                    if (! constants.containsKey(l)) {
-                        constants.put(l, "");
-                    }
-                }
-
-                methodToConstants.put(destinationMethod, constants);
-                res.add(constants);
-                return res;
+                LocalEnvironment constants = calleeContexts == null
+                        ? entryEnvironment(destinationMethod, values)
+                        : calleeContexts.entryEnvironment(destinationMethod, values,
+                                read -> entryEnvironment(destinationMethod, read));
+                // recorded before the solver looks for summaries of the callee in this context
+                callerEnvironments.computeIfAbsent(new CallContext(callStmt, constants),
+                        k -> ConcurrentHashMap.newKeySet()).add(source);
+                return Collections.singleton(intern(constants.asEntry()));
 
             }
         };
     }
 
 
-    FlowFunction<Map<Local, String>> getReturnFlow(final Stmt callSite, final SootMethod calleeMethod,
+    /* The parameters bound to their values, the other locals we don't know */
+    private LocalEnvironment entryEnvironment(SootMethod method, String[] parameterValues) {
+        Map<Local, String> params = new HashMap<>();
+        for (int i = 0; i < parameterValues.length; i++) {
+            if (parameterValues[i] != null) {
+                params.put(method.getBody().getParameterLocal(i), parameterValues[i]);
+            }
+        }
+        return intern(localIndex(method).unknownEnvironment().withAll(params));
+    }
+
+    FlowFunction<LocalEnvironment> getReturnFlow(final Stmt callSite, final SootMethod calleeMethod,
                                                    Stmt exitStmt, Stmt returnSite) {
+        if (!context.descendsInto(callSite.getInvokeExpr(), calleeMethod)) {
+            return KillAll.v();
+        }
 
         SootMethod caller = interproceduralCFG().getMethodOf(returnSite);
         if (callSite instanceof AbstractDefinitionStmt<?, ?> definitionStmt) {
             if (definitionStmt.getLeftOp() instanceof Local) {
                 final Local leftOpLocal = (Local) definitionStmt.getLeftOp();
                 if (exitStmt instanceof JReturnStmt returnStmt) {
-                    return new FlowFunction<Map<Local, String>>() {
+                    return new FlowFunction<LocalEnvironment>() {
                         @Override
-                        public Set<Map<Local, String>> computeTargets(Map<Local, String> source) {
-                            Set<Map<Local, String>> ret = new LinkedHashSet<>();
+                        public Set<LocalEnvironment> computeTargets(LocalEnvironment source) {
                             String returnStr = "";
                             if (returnStmt.getOp() instanceof Local op) {
-                                /* for debugging */
                                 returnStr = source.get(op);
-
                             } else if (returnStmt.getOp() instanceof StringConstant constant) {
                                 returnStr = constant.getValue();
                             }
 
-                            methodToConstants.get(caller).put(leftOpLocal, returnStr);
-                            ret.add(methodToConstants.get(caller));
-                            return ret;
+                            /* only the environments that entered the callee in the context it returns from */
+                            Set<LocalEnvironment> callers = source.getEntry() == null ? null
+                                    : callerEnvironments.get(new CallContext(callSite, source.getEntry()));
+                            if (callers == null) {
+                                // not derived from an entry, e.g. the TOP environments of an exhausted budget
+                                return Collections.singleton(intern(
+                                        localIndex(caller).topEnvironment().with(leftOpLocal, returnStr)));
+                            }
+                            Set<LocalEnvironment> targets = new HashSet<>();
+                            for (LocalEnvironment callerConstants : callers) {
+                                targets.add(intern(callerConstants.with(leftOpLocal, returnStr)));
+                            }
+                            return targets;
                         }
                     };
                 }
@@ -183,20 +286,25 @@ public class IFDSAnalysisProblem extends
         return KillAll.v();
     }
 
-    FlowFunction<Map<Local, String>> getCallToReturnFlow(final Stmt callSite, Stmt returnSite) {
-
-        final SootMethod m = interproceduralCFG().getMethodOf(callSite);
-
-        return new FlowFunction<Map<Local, String>>() {
+    FlowFunction<LocalEnvironment> getCallToReturnFlow(final Stmt callSite, Stmt returnSite) {
+        /* a call no return flow defines the result of, e.g. into the library, returns something we don't know */
+        AbstractInvokeExpr invokeExpr = callSite.getInvokeExpr();
+        final Local unknownResult = callSite instanceof AbstractDefinitionStmt<?, ?> definitionStmt
+                && definitionStmt.getLeftOp() instanceof Local leftOpLocal
+                && !context.getStringApiModels().isModelled(invokeExpr)
+                && interproceduralCFG().getCalleesOfCallAt(callSite).stream()
+                        .noneMatch(callee -> context.descendsInto(invokeExpr, callee))
+                ? leftOpLocal
+                : null;
+        return new FlowFunction<LocalEnvironment>() {
             @Override
-            public Set<Map<Local, String>> computeTargets(Map<Local, String> source) {
+            public Set<LocalEnvironment> computeTargets(LocalEnvironment source) {
 
-                Set<Map<Local,String>> res = new LinkedHashSet<>();
-                StringFoldingVisitor visitor = new StringFoldingVisitor(source);
+                StringFoldingVisitor visitor = new StringFoldingVisitor(source, context);
                 callSite.accept(visitor);
-                res.add(visitor.getSetOut());
-                methodToConstants.put(m, visitor.getSetOut());
-                return res;
+                LocalEnvironment out = visitor.getSetOut();
+                return Collections.singleton(intern(unknownResult == null ? out : out.with(unknownResult,
+                        StringFoldingVisitor.TOP)));
 
             }
         };
@@ -1,8 +1,10 @@
 package org.ifds;
 
 import heros.InterproceduralCFG;
+import heros.solver.IDESolver;
 import sootup.analysis.interprocedural.icfg.JimpleBasedInterproceduralCFG;
 import sootup.analysis.interprocedural.ifds.JimpleIFDSSolver;
+import sootup.core.jimple.basic.Local;
 import sootup.core.jimple.common.stmt.Stmt;
 import sootup.core.model.SootClass;
 import sootup.core.model.SootMethod;
@@ -14,41 +16,493 @@ import sootup.java.core.language.JavaLanguage;
 import sootup.java.core.types.JavaClassType;
 import sootup.java.core.views.JavaView;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 public class IFDSSetUp {
 
+    /* Solver and fact domain the analysis runs on. */
+    public enum Engine {
+        /* one fact per environment, see IFDSAnalysisProblem */
+        IFDS_ENVIRONMENT,
+        /* one fact per local binding, see DistributiveIFDSAnalysisProblem */
+        IFDS_PER_LOCAL,
+        /* locals as facts, strings as values, see IDEAnalysisProblem */
+        IDE
+    }
+
+    static final String DEFAULT_INPUT_PATH = System.getProperty("ifds.inputPath",
+            "/home/szaldana/IdeaProjects/module-project/outDir/jlink.module");
+
+    protected Engine engine = Engine.IFDS_ENVIRONMENT;
+    protected int maxConstantLength = WideningPolicy.DEFAULT_MAX_LENGTH;
+    protected int maxValuesPerStmt = WideningPolicy.DEFAULT_MAX_VALUES_PER_STMT;
+    protected int flowFunctionCacheSize = CachingFlowFunctions.DEFAULT_SIZE;
+    protected boolean narrowCalleeContexts = true;
+    protected int numThreads = 1;
+    protected int loadParallelism = Runtime.getRuntime().availableProcessors();
+    protected StringApiModels stringApiModels = StringApiModels.defaults();
+    protected AnalysisScope scope = AnalysisScope.jdk();
+    protected boolean sparse;
+    protected boolean collectMetrics;
+    protected Path metricsFile;
+    protected Path resultFile;
+    protected boolean releaseAfterExport;
+    protected long maxSolveMillis = SolveBudget.UNLIMITED;
+    protected double maxHeapFraction = SolveBudget.UNLIMITED;
+    protected Path callGraphCacheDirectory;
+    protected CallGraphCache callGraphCache;
+    protected MethodSummaryStore methodSummaryStore;
     protected JavaView view;
     protected MethodSignature entryMethodSignature;
     protected SootMethod entryMethod;
-    protected SootMethod clinit;
-    private static JimpleIFDSSolver<?, InterproceduralCFG<Stmt, SootMethod>> solved = null;
+    protected StaticFieldConstantTable fieldConstants;
+    protected ParallelBodyLoader bodyLoader;
+    protected PhaseTimings setupTimings = new PhaseTimings();
+    protected AnalysisRun lastRun;
+    protected StringQueries queries;
 
-    public JimpleIFDSSolver<?, InterproceduralCFG<Stmt, SootMethod>> executeStaticAnalysis(String targetClassName) {
-        setupSoot(targetClassName, "/home/szaldana/IdeaProjects/module-project/outDir/jlink.module");
-        runAnalysis();
-        if (solved == null) {
-            throw new NullPointerException("Something went wrong solving the IFDS problem!");
+    public void setEngine(Engine engine) {
+        this.engine = engine;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    /* Bounds applied by the next run, see WideningPolicy. */
+    public void setWideningBounds(int maxConstantLength, int maxValuesPerStmt) {
+        this.maxConstantLength = maxConstantLength;
+        this.maxValuesPerStmt = maxValuesPerStmt;
+    }
+
+    /* The policy of the last run, which also counts how often that run widened. */
+    public WideningPolicy getWideningPolicy() {
+        return lastRun == null ? null : lastRun.getWideningPolicy();
+    }
+
+    /* Maximum number of flow-function targets memoized per run, see CachingFlowFunctions, and of flow functions
+       the IDE engine caches. The IFDS solvers always cache flow functions the heros way. 0 disables both. */
+    public void setFlowFunctionCacheSize(int flowFunctionCacheSize) {
+        this.flowFunctionCacheSize = flowFunctionCacheSize;
+    }
+
+    /* Whether the environment engine enters callees with only the arguments they read, see CalleeContextCache.
+       On by default, false enters every callee with all of its arguments. */
+    public void setNarrowCalleeContexts(boolean narrowCalleeContexts) {
+        this.narrowCalleeContexts = narrowCalleeContexts;
+    }
+
+    /* Threads each solver propagates on. Batches already run one solver per thread, so keep it at 1 there. */
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    /* Threads converting method bodies while setting up the view, 0 to convert them lazily while the call
+       graph is built. Applies from the next setupSoot or setupView. */
+    public void setLoadParallelism(int loadParallelism) {
+        this.loadParallelism = loadParallelism;
+    }
+
+    /* null if bodies are converted lazily */
+    public ParallelBodyLoader getBodyLoader() {
+        return bodyLoader;
+    }
+
+    /* Time spent scanning the input and converting bodies for the current view. */
+    public PhaseTimings getSetupTimings() {
+        return setupTimings;
+    }
+
+    /* The targets memo of the last run with its hit/miss statistics, null if disabled or not applicable. */
+    public CachingFlowFunctions<?> getFlowFunctionCache() {
+        return lastRun == null ? null : lastRun.getFlowFunctionCache();
+    }
+
+    /* Directory call graphs are persisted in across runs, null to rebuild them every run. Applies from
+       the next setupSoot or setupView. */
+    public void setCallGraphCacheDirectory(Path callGraphCacheDirectory) {
+        this.callGraphCacheDirectory = callGraphCacheDirectory;
+    }
+
+    /* null if call graphs are not persisted */
+    public CallGraphCache getCallGraphCache() {
+        return callGraphCache;
+    }
+
+    /* File method summaries are kept in between runs of the IDE engine, so a run only re-solves the
+       methods that changed and their callers. null to always solve the whole program. */
+    public void setMethodSummaryFile(Path methodSummaryFile) {
+        this.methodSummaryStore = methodSummaryFile == null ? null : new MethodSummaryStore(methodSummaryFile);
+    }
+
+    /* null if summaries are not kept */
+    public MethodSummaryStore getMethodSummaryStore() {
+        return methodSummaryStore;
+    }
+
+    /* Models of the string API calls the analysis interprets, register custom models here before setupSoot. */
+    public StringApiModels getStringApiModels() {
+        return stringApiModels;
+    }
+
+    public void setStringApiModels(StringApiModels stringApiModels) {
+        this.stringApiModels = stringApiModels;
+    }
+
+    /* Adds the summaries in the file to the string API models, see StringApiModels for the format. */
+    public void loadLibrarySummaries(Path summaryFile) throws IOException {
+        try (Reader reader = Files.newBufferedReader(summaryFile)) {
+            stringApiModels.load(reader);
         }
-        return solved;
+    }
+
+    /* Library code is not descended into, only summarized. Defaults to the JDK, AnalysisScope.everything()
+       analyzes every body the call graph reaches. */
+    public void setScope(AnalysisScope scope) {
+        this.scope = scope;
+    }
+
+    public AnalysisScope getScope() {
+        return scope;
+    }
+
+    /* Solve over a SparseInterproceduralCFG, which skips the statements that don't touch string locals.
+       There are no results at the skipped statements. */
+    public void setSparse(boolean sparse) {
+        this.sparse = sparse;
+    }
+
+    public boolean isSparse() {
+        return sparse;
+    }
+
+    /* Collect SolverMetrics in every run, see AnalysisRun.getMetrics. Off by default, as it times every
+       propagation and keeps the facts seen at each statement. */
+    public void setCollectMetrics(boolean collectMetrics) {
+        this.collectMetrics = collectMetrics;
+    }
+
+    public boolean isCollectMetrics() {
+        return collectMetrics || metricsFile != null;
+    }
+
+    /* runAnalysis writes the metrics of its run to the file, as JSON if it ends in .json and in the
+       Prometheus text format otherwise. Implies collecting metrics, null to stop writing them. */
+    public void setMetricsFile(Path metricsFile) {
+        this.metricsFile = metricsFile;
+    }
+
+    /* Limits every solve to the wall-clock time and the fraction of the maximum heap, 0 for no limit.
+       A run that hits a limit finishes with TOP for whatever it had not solved yet, see SolveBudget. */
+    public void setSolveBudget(long maxSolveMillis, double maxHeapFraction) {
+        this.maxSolveMillis = maxSolveMillis;
+        this.maxHeapFraction = maxHeapFraction;
+    }
+
+    /* runAnalysis streams the constants of its run to the file, see ResultExporter and ResultFile.
+       null to not export them. */
+    public void setResultFile(Path resultFile) {
+        this.resultFile = resultFile;
+    }
+
+    /* After exporting, runAnalysis keeps only the statistics of its run and lets the solver, its results and
+       the interprocedural CFG be collected, so they are not held while the next run is set up or solved. The
+       constants are then only in the result file, getSolver and getResultsAt of the last run are gone. */
+    public void setReleaseAfterExport(boolean releaseAfterExport) {
+        this.releaseAfterExport = releaseAfterExport;
+    }
+
+    public IDESolver<Stmt, ?, SootMethod, ?, InterproceduralCFG<Stmt, SootMethod>> executeStaticAnalysis(
+            String targetClassName) {
+        return executeStaticAnalysis(targetClassName, DEFAULT_INPUT_PATH);
+    }
+
+    public IDESolver<Stmt, ?, SootMethod, ?, InterproceduralCFG<Stmt, SootMethod>> executeStaticAnalysis(
+            String targetClassName, String inputPath) {
+        setupSoot(targetClassName, inputPath);
+        runAnalysis();
+        return lastRun.getSolver();
+    }
+
+    public IDESolver<Stmt, ?, SootMethod, ?, InterproceduralCFG<Stmt, SootMethod>> getSolver() {
+        return lastRun == null ? null : lastRun.getSolver();
+    }
+
+    /* The last run of runAnalysis or executeStaticAnalysis. */
+    public AnalysisRun getLastRun() {
+        return lastRun;
     }
 
     public void runAnalysis() {
+        lastRun = analyze(entryMethod.getDeclaringClassType().getClassName(), entryMethod);
+        if (metricsFile != null) {
+            try {
+                lastRun.getMetrics().write(metricsFile);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write metrics to " + metricsFile, e);
+            }
+        }
+        if (resultFile != null && !lastRun.isFailed()) {
+            try {
+                ResultExporter.export(lastRun, resultFile);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write results to " + resultFile, e);
+            }
+            if (releaseAfterExport) {
+                lastRun = lastRun.released();
+            }
+        }
+    }
 
-        JimpleBasedInterproceduralCFG icfg = new JimpleBasedInterproceduralCFG(
-                view,
-                entryMethodSignature,
-                false,
-                false);
+    /* The value of the local before the statement, solved on demand instead of for the whole program,
+       see StringQueries. TOP if it is not known. */
+    public String valueOf(Stmt stmt, Local local) {
+        return getQueries().valueOf(stmt, local);
+    }
 
-        IFDSAnalysisProblem problem = new IFDSAnalysisProblem(icfg, entryMethod, clinit);
-        JimpleIFDSSolver<?, InterproceduralCFG<Stmt, SootMethod>> solver = new JimpleIFDSSolver<>(problem);
-        solver.solve(entryMethod.getDeclaringClassType().getClassName());
-        solved = solver;
+    /* Demand-driven queries from the entry method, created by the first query after setupSoot. */
+    public StringQueries getQueries() {
+        if (queries == null) {
+            queries = newQueries(entryMethod);
+        }
+        return queries;
+    }
+
+    /* Demand-driven queries from any entry method in the view. */
+    public StringQueries newQueries(SootMethod entryMethod) {
+        InterproceduralCFG<Stmt, SootMethod> icfg = callGraphCache != null
+                ? callGraphCache.get(entryMethod).icfg()
+                : new JimpleBasedInterproceduralCFG(view, entryMethod.getSignature(), false, false);
+        CachedInterproceduralCFG callGraph = icfg instanceof CachedInterproceduralCFG cached
+                ? cached
+                : CachedInterproceduralCFG.of(icfg, entryMethod);
+        WideningPolicy widening = new WideningPolicy(maxConstantLength, maxValuesPerStmt);
+        return new StringQueries(entryMethod, callGraph,
+                new StringAnalysisContext(fieldConstants, widening, stringApiModels, scope));
+    }
+
+    /**
+     * Analyzes the main method of every target class, solving up to parallelism entry points at
+     * once over a single view. Each run is handed to onResult as soon as it finishes, on the
+     * calling thread, so onResult doesn't need to be thread-safe. A target that fails to resolve or
+     * solve is reported as a failed run and does not stop the batch.
+     *
+     * The class cache of the view is not safe to fill concurrently, so every class of the input is
+     * resolved, and every entry method looked up, before the first run starts.
+     */
+    public void executeBatch(List<String> targetClassNames, String inputPath, int parallelism,
+                             Consumer<AnalysisRun> onResult) {
+        setupView(inputPath);
+        if (bodyLoader == null) {
+            // the body loader has resolved them already
+            view.getClasses();
+        }
+        Map<String, SootMethod> entryMethods = new HashMap<>();
+        Map<String, RuntimeException> unresolved = new HashMap<>();
+        for (String targetClassName : targetClassNames) {
+            try {
+                entryMethods.put(targetClassName, findEntryMethod(targetClassName));
+            } catch (IllegalArgumentException e) {
+                unresolved.put(targetClassName, e);
+            }
+        }
+        loadBodies(new ArrayList<>(entryMethods.values()));
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            CompletionService<AnalysisRun> completed = new ExecutorCompletionService<>(executor);
+            for (String targetClassName : targetClassNames) {
+                SootMethod entryMethod = entryMethods.get(targetClassName);
+                completed.submit(() -> {
+                    if (entryMethod == null) {
+                        return AnalysisRun.failed(targetClassName, engine, unresolved.get(targetClassName));
+                    }
+                    try {
+                        return analyze(targetClassName, entryMethod);
+                    } catch (RuntimeException | StackOverflowError e) {
+                        return AnalysisRun.failed(targetClassName, engine, e);
+                    }
+                });
+            }
+            for (int i = 0; i < targetClassNames.size(); i++) {
+                onResult.accept(completed.take().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch analysis failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /* Solves one entry point. Only reads the shared view and configuration, so it may run concurrently. */
+    protected AnalysisRun analyze(String targetClassName, SootMethod entryMethod) {
+        return analyze(targetClassName, entryMethod, engine);
+    }
+
+    protected AnalysisRun analyze(String targetClassName, SootMethod entryMethod, Engine engine) {
+        PhaseTimings timings = setupTimings.copy();
+        long start = System.nanoTime();
+        InterproceduralCFG<Stmt, SootMethod> icfg;
+        boolean warm = false;
+        if (callGraphCache != null) {
+            CallGraphCache.Lookup lookup = callGraphCache.get(entryMethod);
+            icfg = lookup.icfg();
+            warm = lookup.warm();
+        } else {
+            icfg = new JimpleBasedInterproceduralCFG(
+                    view,
+                    entryMethod.getSignature(),
+                    false,
+                    false);
+        }
+        long callGraphNanos = System.nanoTime() - start;
+        if (methodSummaryStore != null && engine == Engine.IDE && !(icfg instanceof CachedInterproceduralCFG)) {
+            // summaries are planned over the whole call graph
+            icfg = CachedInterproceduralCFG.of(icfg, entryMethod);
+        }
+        InterproceduralCFG<Stmt, SootMethod> callGraph = icfg;
+        if (sparse) {
+            icfg = new SparseInterproceduralCFG(icfg);
+        }
+        long icfgNanos = System.nanoTime() - start;
+        timings.record(PhaseTimings.Phase.CALL_GRAPH, callGraphNanos);
+        timings.record(PhaseTimings.Phase.ICFG, icfgNanos - callGraphNanos);
+
+        WideningPolicy widening = new WideningPolicy(maxConstantLength, maxValuesPerStmt);
+        StringAnalysisContext context = new StringAnalysisContext(fieldConstants, widening, stringApiModels, scope);
+        SolverMetrics metrics = isCollectMetrics() ? new SolverMetrics(targetClassName, engine) : null;
+        SolveBudget budget = SolveBudget.of(maxSolveMillis, maxHeapFraction);
+        IDESolver<Stmt, ?, SootMethod, ?, InterproceduralCFG<Stmt, SootMethod>> solved;
+        CachingFlowFunctions<?> flowFunctionCache;
+        CalleeContextCache calleeContexts = null;
+        if (engine == Engine.IDE) {
+            IDEAnalysisProblem problem = new IDEAnalysisProblem(icfg, entryMethod, context);
+            problem.setFlowFunctionCacheSize(flowFunctionCacheSize);
+            problem.setNumThreads(numThreads);
+            problem.setMetrics(metrics);
+            problem.setBudget(budget);
+            MethodSummaryStore.Plan plan = null;
+            startBudget(budget);
+            if (methodSummaryStore != null) {
+                plan = methodSummaryStore.plan((CachedInterproceduralCFG) callGraph, entryMethod, context);
+                while (!plan.dirty().isEmpty()) {
+                    IDEAnalysisProblem summaries = new IDEAnalysisProblem(icfg, entryMethod, context);
+                    summaries.setFlowFunctionCacheSize(flowFunctionCacheSize);
+                    summaries.setNumThreads(numThreads);
+                    summaries.setBudget(budget);
+                    summaries.setMethodSummaries(plan.reusable());
+                    SummaryIDESolver summarizer = new SummaryIDESolver(summaries,
+                            SummaryIDESolver.flowFunctionCacheBuilder(flowFunctionCacheSize, numThreads));
+                    summarizer.solveSummaries(plan.dirty());
+                    if (budget != null && budget.isExhausted()) {
+                        // partial summaries must not be stored, the run is partial anyway
+                        break;
+                    }
+                    plan = methodSummaryStore.refine(plan, summarizer, summaries.zeroValue(),
+                            (CachedInterproceduralCFG) callGraph);
+                }
+                problem.setMethodSummaries(plan.reusable());
+            }
+            SummaryIDESolver solver = new SummaryIDESolver(problem,
+                    SummaryIDESolver.flowFunctionCacheBuilder(flowFunctionCacheSize, numThreads));
+            solver.solve();
+            // summaries of a partial solve would be reused as if they were complete
+            if (plan != null && (budget == null || !budget.isExhausted())) {
+                methodSummaryStore.update(plan, solver, problem.zeroValue());
+            }
+            flowFunctionCache = problem.getCachingFlowFunctions();
+            solved = solver;
+        } else if (engine == Engine.IFDS_PER_LOCAL) {
+            DistributiveIFDSAnalysisProblem problem;
+            JimpleIFDSSolver<LocalStringFact, InterproceduralCFG<Stmt, SootMethod>> solver;
+            startBudget(budget);
+            do {
+                problem = new DistributiveIFDSAnalysisProblem(icfg, entryMethod, context);
+                problem.setFlowFunctionCacheSize(flowFunctionCacheSize);
+                problem.setNumThreads(numThreads);
+                problem.setMetrics(metrics);
+                problem.setBudget(budget);
+                solver = new JimpleIFDSSolver<>(problem);
+                solver.solve(targetClassName);
+            } while (resolveSaturated(widening, budget));
+            flowFunctionCache = problem.getCachingFlowFunctions();
+            solved = solver;
+        } else {
+            IFDSAnalysisProblem problem;
+            EnvironmentIFDSSolver solver;
+            startBudget(budget);
+            do {
+                problem = new IFDSAnalysisProblem(icfg, entryMethod, context);
+                problem.setNarrowCalleeContexts(narrowCalleeContexts);
+                problem.setNumThreads(numThreads);
+                problem.setMetrics(metrics);
+                problem.setBudget(budget);
+                solver = new EnvironmentIFDSSolver(problem);
+                solver.solve(targetClassName);
+                problem.solved();
+            } while (resolveSaturated(widening, budget));
+            flowFunctionCache = null;
+            calleeContexts = problem.getCalleeContexts();
+            solved = solver;
+        }
+        long solveNanos = System.nanoTime() - start - icfgNanos;
+        timings.record(PhaseTimings.Phase.SOLVE, solveNanos);
+        if (metrics != null) {
+            metrics.recordSolve(solveNanos, widening);
+            if (calleeContexts != null) {
+                metrics.recordCalleeContexts(calleeContexts.getContexts(), calleeContexts.getAvoided());
+            }
+        }
+        return new AnalysisRun(targetClassName, engine, entryMethod, solved, icfg, widening, flowFunctionCache,
+                metrics, budget, calleeContexts, timings, warm);
+    }
+
+    /* Whether the fact-based engines have to solve again because statements overflowed the value cap, see
+       WideningPolicy. The edge functions of the IDE engine only widen by length, which does not depend on
+       order. Metrics add up over the solves, a budget covers all of them. */
+    private static boolean resolveSaturated(WideningPolicy widening, SolveBudget budget) {
+        return (budget == null || !budget.isExhausted()) && widening.saturateOverflowed();
+    }
+
+    private static void startBudget(SolveBudget budget) {
+        if (budget != null) {
+            budget.start();
+        }
     }
 
     public void setupSoot(String targetClassName, String inputPath) {
+        setupView(inputPath);
+        entryMethod = findEntryMethod(targetClassName);
+        entryMethodSignature = entryMethod.getSignature();
+        loadBodies(List.of(entryMethod));
+    }
+
+    /* Creates the view and the tables shared by every entry point analyzed on it. Unless a call graph
+       cache is used, which needs few bodies once it is warm, every class of the input is resolved up front
+       so that bodies can be converted in parallel, see ParallelBodyLoader. */
+    public void setupView(String inputPath) {
+        setupTimings = new PhaseTimings();
+        long start = System.nanoTime();
         JavaProject javaProject =
                 JavaProject.builder(new JavaLanguage(9))
                         .addInputLocation(
@@ -56,25 +510,40 @@ public class IFDSSetUp {
                         .build();
 
         view = javaProject.createOnDemandView();
+        queries = null;
+        fieldConstants = new StaticFieldConstantTable(view, stringApiModels);
+        callGraphCache = callGraphCacheDirectory == null
+                ? null
+                : new CallGraphCache(view, inputPath, callGraphCacheDirectory);
+        bodyLoader = null;
+        if (loadParallelism > 0 && callGraphCache == null) {
+            bodyLoader = new ParallelBodyLoader(view, scope, loadParallelism);
+            bodyLoader.scan();
+        }
+        setupTimings.record(PhaseTimings.Phase.INPUT_SCAN, System.nanoTime() - start);
+    }
+
+    private void loadBodies(List<SootMethod> entryMethods) {
+        if (bodyLoader != null) {
+            long start = System.nanoTime();
+            bodyLoader.load(entryMethods);
+            setupTimings.record(PhaseTimings.Phase.BODY_CONVERSION, System.nanoTime() - start);
+        }
+    }
 
+    protected SootMethod findEntryMethod(String targetClassName) {
         JavaIdentifierFactory identifierFactory = JavaIdentifierFactory.getInstance();
         JavaClassType mainClassSignature = identifierFactory.getClassType(targetClassName);
 
-        SootClass<?> sc = view.getClass(mainClassSignature).get();
-        entryMethod = sc.getMethods().stream().filter(m -> m.getName().equals("main")).findFirst().get();
-        clinit = sc.getMethods().stream().filter(m -> m.getName().equals("<clinit>")).findFirst().get();
-
-        entryMethodSignature = entryMethod.getSignature();
-        assert(entryMethod != null);
+        SootClass<?> sc = view.getClass(mainClassSignature).orElseThrow(
+                () -> new IllegalArgumentException("Class not found: " + targetClassName));
+        return sc.getMethods().stream().filter(m -> m.getName().equals("main")).findFirst().orElseThrow(
+                () -> new IllegalArgumentException("No main method in " + targetClassName));
     }
 
     public Set<?> getResultsAtLastStatement(
-            JimpleIFDSSolver<?, InterproceduralCFG<Stmt, SootMethod>> analysis) {
-        SootMethod m = entryMethod;
-        List<Stmt> stmts = m.getBody().getStmts();
-        Set<?> rawSet = analysis.ifdsResultsAt(stmts.get(stmts.size() - 1));
-        System.out.println(rawSet);
-        return rawSet;
+            IDESolver<Stmt, ?, SootMethod, ?, InterproceduralCFG<Stmt, SootMethod>> analysis) {
+        return AnalysisRun.resultsAtLastStatement(engine, entryMethod, analysis);
     }
 
 }
\ No newline at end of file
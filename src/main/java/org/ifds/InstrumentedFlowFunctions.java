@@ -0,0 +1,75 @@
+package org.ifds;
+
+import heros.FlowFunction;
+import heros.FlowFunctions;
+import heros.InterproceduralCFG;
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.model.SootMethod;
+
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Records every flow function application of a problem into {@link SolverMetrics}: its kind, the
+ * time it took, the method and statement it was applied at, the source fact, and the size of each
+ * target. Wraps the outermost flow functions, so cached flow functions are counted as well.
+ *
+ * A propagation is attributed to the statement it leaves: the current statement for normal flow,
+ * the call site for call and call-to-return flow, and the exit statement for return flow.
+ */
+public class InstrumentedFlowFunctions<D> implements FlowFunctions<Stmt, D, SootMethod> {
+
+    private final FlowFunctions<Stmt, D, SootMethod> delegate;
+    private final InterproceduralCFG<Stmt, SootMethod> icfg;
+    private final SolverMetrics metrics;
+    private final ToIntFunction<? super D> factSize;
+    private final Predicate<? super D> holdsTop;
+
+    /* factSize counts the known locals of a fact, holdsTop tells whether one of them is TOP */
+    public InstrumentedFlowFunctions(FlowFunctions<Stmt, D, SootMethod> delegate,
+                                     InterproceduralCFG<Stmt, SootMethod> icfg, SolverMetrics metrics,
+                                     ToIntFunction<? super D> factSize, Predicate<? super D> holdsTop) {
+        this.delegate = delegate;
+        this.icfg = icfg;
+        this.metrics = metrics;
+        this.factSize = factSize;
+        this.holdsTop = holdsTop;
+    }
+
+    @Override
+    public FlowFunction<D> getNormalFlowFunction(Stmt curr, Stmt succ) {
+        return instrument(SolverMetrics.Kind.NORMAL, curr, delegate.getNormalFlowFunction(curr, succ));
+    }
+
+    @Override
+    public FlowFunction<D> getCallFlowFunction(Stmt callStmt, SootMethod destinationMethod) {
+        return instrument(SolverMetrics.Kind.CALL, callStmt, delegate.getCallFlowFunction(callStmt, destinationMethod));
+    }
+
+    @Override
+    public FlowFunction<D> getReturnFlowFunction(Stmt callSite, SootMethod calleeMethod, Stmt exitStmt,
+                                                 Stmt returnSite) {
+        return instrument(SolverMetrics.Kind.RETURN, exitStmt,
+                delegate.getReturnFlowFunction(callSite, calleeMethod, exitStmt, returnSite));
+    }
+
+    @Override
+    public FlowFunction<D> getCallToReturnFlowFunction(Stmt callSite, Stmt returnSite) {
+        return instrument(SolverMetrics.Kind.CALL_TO_RETURN, callSite,
+                delegate.getCallToReturnFlowFunction(callSite, returnSite));
+    }
+
+    private FlowFunction<D> instrument(SolverMetrics.Kind kind, Stmt stmt, FlowFunction<D> flowFunction) {
+        SootMethod method = icfg.getMethodOf(stmt);
+        return source -> {
+            long start = System.nanoTime();
+            Set<D> targets = flowFunction.computeTargets(source);
+            metrics.recordPropagation(kind, stmt, method, source, System.nanoTime() - start);
+            for (D target : targets) {
+                metrics.recordTarget(factSize.applyAsInt(target), holdsTop.test(target));
+            }
+            return targets;
+        };
+    }
+}
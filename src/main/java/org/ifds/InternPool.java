@@ -0,0 +1,110 @@
+package org.ifds;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Canonicalizes equal values to one instance, so the solver stores one copy of every environment,
+ * fact and string value and can often compare them by reference. The pool only holds its values
+ * weakly: a value nothing else refers to any more, e.g. a fact of a finished run, is dropped from
+ * the pool by the garbage collector. Thread-safe.
+ *
+ * Values must be immutable and should cache their hash code, it is computed on every lookup.
+ * Interning can be turned off with -Difds.intern=false to compare heap use against a run without it.
+ */
+public final class InternPool<T> {
+
+    static final boolean ENABLED = !"false".equals(System.getProperty("ifds.intern"));
+
+    /* Compares by the referent while it is alive, by identity once it has been cleared. */
+    private static final class WeakKey<T> extends WeakReference<T> {
+
+        private final int hash;
+
+        WeakKey(T referent, ReferenceQueue<? super T> queue) {
+            super(referent, queue);
+            this.hash = referent.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof WeakKey<?> other) || hash != other.hash) {
+                return false;
+            }
+            T referent = get();
+            return referent != null && referent.equals(other.get());
+        }
+    }
+
+    private final Map<WeakKey<T>, WeakKey<T>> pool = new ConcurrentHashMap<>();
+    private final ReferenceQueue<T> collected = new ReferenceQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /* The pooled instance equal to value, value itself if there is none yet. null stays null. */
+    public T intern(T value) {
+        if (!ENABLED || value == null) {
+            return value;
+        }
+        expunge();
+        WeakKey<T> existing = pool.get(new WeakKey<>(value, null));
+        T canonical = existing == null ? null : existing.get();
+        if (canonical != null) {
+            hits.increment();
+            return canonical;
+        }
+        WeakKey<T> key = new WeakKey<>(value, collected);
+        while (true) {
+            existing = pool.putIfAbsent(key, key);
+            if (existing == null) {
+                misses.increment();
+                return value;
+            }
+            canonical = existing.get();
+            if (canonical != null) {
+                hits.increment();
+                return canonical;
+            }
+            // collected since the lookup, its entry is about to be expunged
+            pool.remove(existing, existing);
+        }
+    }
+
+    /* Removes the entries of collected values. */
+    private void expunge() {
+        for (Object key; (key = collected.poll()) != null; ) {
+            pool.remove(key, key);
+        }
+    }
+
+    /* Live and not yet expunged values. */
+    public int size() {
+        expunge();
+        return pool.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public String toString() {
+        return size() + " pooled, " + getHits() + " hits, " + getMisses() + " misses"
+                + (ENABLED ? "" : " (disabled)");
+    }
+}
@@ -0,0 +1,184 @@
+package org.ifds;
+
+import sootup.core.jimple.basic.Local;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable environment of one method, backed by an array indexed through a {@link LocalIndex}.
+ * Updates copy the array only when a value actually changes; an update that leaves the value as
+ * it was returns the same instance, so statements that don't change a string allocate nothing.
+ *
+ * It is a read-only {@link Map}, so it can be used wherever the analysis exposes environments.
+ * Environments of a method the analysis descended into also remember the environment the method
+ * was entered with, see {@link #getEntry()}; two environments are only equal if that matches too.
+ */
+public final class LocalEnvironment extends AbstractMap<Local, String> {
+
+    private final LocalIndex index;
+    private final String[] values;
+    /* null in the entry method, never has an entry itself */
+    private final LocalEnvironment entry;
+    private int hash;
+
+    LocalEnvironment(LocalIndex index, String[] values) {
+        this(index, values, null);
+    }
+
+    private LocalEnvironment(LocalIndex index, String[] values, LocalEnvironment entry) {
+        this.index = index;
+        this.values = values;
+        this.entry = entry;
+    }
+
+    /* This environment as the one a method is entered with, so everything derived from it knows its context. */
+    public LocalEnvironment asEntry() {
+        if (entry != null) {
+            throw new IllegalStateException("Already entered with " + entry);
+        }
+        return new LocalEnvironment(index, values, this);
+    }
+
+    /* The environment the method was entered with, null in the entry method. */
+    public LocalEnvironment getEntry() {
+        return entry;
+    }
+
+    public LocalIndex getIndex() {
+        return index;
+    }
+
+    @Override
+    public String get(Object key) {
+        int i = index.indexOf(key);
+        return i < 0 ? null : values[i];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    public LocalEnvironment with(Local local, String value) {
+        int i = index.indexOf(local);
+        if (i < 0) {
+            throw new IllegalArgumentException("Local " + local + " does not belong to this environment");
+        }
+        if (value == null ? values[i] == null : value.equals(values[i])) {
+            return this;
+        }
+        String[] copy = values.clone();
+        copy[i] = value;
+        return new LocalEnvironment(index, copy, entry);
+    }
+
+    /* Applies several updates with a single copy. */
+    public LocalEnvironment withAll(Map<Local, String> updates) {
+        String[] copy = null;
+        for (Map.Entry<Local, String> update : updates.entrySet()) {
+            int i = index.indexOf(update.getKey());
+            if (i < 0) {
+                throw new IllegalArgumentException("Local " + update.getKey() + " does not belong to this environment");
+            }
+            if (!update.getValue().equals(values[i])) {
+                if (copy == null) {
+                    copy = values.clone();
+                }
+                copy[i] = update.getValue();
+            }
+        }
+        return copy == null ? this : new LocalEnvironment(index, copy, entry);
+    }
+
+    /* Locals holding something other than the initial "", e.g. a constant or TOP. */
+    public int countKnown() {
+        int known = 0;
+        for (String value : values) {
+            if (value != null && !value.isEmpty()) {
+                known++;
+            }
+        }
+        return known;
+    }
+
+    @Override
+    public Set<Entry<Local, String>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Local, String>> iterator() {
+                return new Iterator<>() {
+                    private int next = advance(0);
+
+                    private int advance(int from) {
+                        while (from < values.length && values[from] == null) {
+                            from++;
+                        }
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < values.length;
+                    }
+
+                    @Override
+                    public Entry<Local, String> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<Local, String> entry = new SimpleImmutableEntry<>(index.localAt(next), values[next]);
+                        next = advance(next + 1);
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                int size = 0;
+                for (String value : values) {
+                    if (value != null) {
+                        size++;
+                    }
+                }
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof LocalEnvironment other && other.index == index) {
+            return hashCode() == other.hashCode() && Arrays.equals(values, other.values)
+                    && Objects.equals(entry, other.entry);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    h += index.localAt(i).hashCode() ^ values[i].hashCode();
+                }
+            }
+            if (entry != null) {
+                h = 31 * h + entry.hashCode();
+            }
+            hash = h;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,57 @@
+package org.ifds;
+
+import sootup.core.jimple.basic.Local;
+import sootup.core.model.SootMethod;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Numbers the locals of one method once, so environments can store their values in a plain array
+ * instead of a map of their own. Looking up a local still takes one hash lookup in the shared index,
+ * but copying, comparing and hashing an environment only walks its array.
+ */
+public final class LocalIndex {
+
+    private final Map<Local, Integer> indices;
+    private final Local[] locals;
+    private final LocalEnvironment unknown;
+
+    public LocalIndex(SootMethod method) {
+        this.locals = method.getBody().getLocals().toArray(new Local[0]);
+        this.indices = new HashMap<>(locals.length * 2);
+        for (int i = 0; i < locals.length; i++) {
+            indices.put(locals[i], i);
+        }
+        String[] values = new String[locals.length];
+        Arrays.fill(values, "");
+        this.unknown = new LocalEnvironment(this, values);
+    }
+
+    /* Index of the local, or -1 if it does not belong to this method. */
+    public int indexOf(Object local) {
+        Integer index = indices.get(local);
+        return index == null ? -1 : index;
+    }
+
+    public Local localAt(int index) {
+        return locals[index];
+    }
+
+    public int size() {
+        return locals.length;
+    }
+
+    /* The shared environment that maps every local to "", the value the analysis starts from. */
+    public LocalEnvironment unknownEnvironment() {
+        return unknown;
+    }
+
+    /* A new environment that maps every local to TOP. */
+    public LocalEnvironment topEnvironment() {
+        String[] values = new String[locals.length];
+        Arrays.fill(values, StringFoldingVisitor.TOP);
+        return new LocalEnvironment(this, values);
+    }
+}
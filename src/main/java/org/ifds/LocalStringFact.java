@@ -0,0 +1,98 @@
+package org.ifds;
+
+import sootup.core.jimple.basic.Local;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A single binding of one local to one string value. This is the fact type of the distributive
+ * analysis: instead of carrying a whole environment, each fact only says "local l holds value v".
+ * Facts are interned, so equal facts are the same instance and hash codes are computed once. The
+ * pool holds them weakly, facts of a finished run do not outlive it.
+ */
+public final class LocalStringFact {
+
+    private static final InternPool<LocalStringFact> POOL = new InternPool<>();
+    private static final LocalStringFact ZERO = new LocalStringFact(null, null);
+
+    private final Local local;
+    private final String value;
+    private final int hash;
+
+    private LocalStringFact(Local local, String value) {
+        this.local = local;
+        this.value = value;
+        this.hash = Objects.hash(local, value);
+    }
+
+    public static LocalStringFact of(Local local, String value) {
+        return POOL.intern(new LocalStringFact(local, StringLattice.canonical(value)));
+    }
+
+    public static InternPool<LocalStringFact> getPool() {
+        return POOL;
+    }
+
+    /* The facts as a set a solver can keep around cheaply: shared when empty, a singleton for one fact. */
+    static Set<LocalStringFact> compact(Set<LocalStringFact> facts) {
+        return switch (facts.size()) {
+            case 0 -> Collections.emptySet();
+            case 1 -> Collections.singleton(facts.iterator().next());
+            default -> facts;
+        };
+    }
+
+    public static LocalStringFact zero() {
+        return ZERO;
+    }
+
+    public boolean isZero() {
+        return this == ZERO;
+    }
+
+    public Local getLocal() {
+        return local;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /* Rebuilds the per-local view from a set of facts. A local bound to different values is TOP. */
+    public static Map<Local, String> toEnvironment(Collection<LocalStringFact> facts) {
+        Map<Local, String> env = new HashMap<>();
+        for (LocalStringFact fact : facts) {
+            if (!fact.isZero()) {
+                env.merge(fact.getLocal(), fact.getValue(),
+                        (a, b) -> a.equals(b) ? a : StringFoldingVisitor.TOP);
+            }
+        }
+        return env;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LocalStringFact other)) {
+            return false;
+        }
+        return hash == other.hash && Objects.equals(local, other.local) && Objects.equals(value, other.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return isZero() ? "<zero>" : local + "=" + value;
+    }
+}
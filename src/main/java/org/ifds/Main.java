@@ -1,20 +1,52 @@
 package org.ifds;
 
-import heros.InterproceduralCFG;
-import sootup.analysis.interprocedural.ifds.JimpleIFDSSolver;
-import sootup.core.jimple.common.stmt.Stmt;
-import sootup.core.model.SootMethod;
-
-import java.util.Set;
+import java.io.IOException;
+import java.nio.file.Path;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
 
         IFDSSetUp setUp = new IFDSSetUp();
-        JimpleIFDSSolver<?, InterproceduralCFG<Stmt, SootMethod>> analysis =
-                setUp.executeStaticAnalysis("jlink.Test");
+        if (args.length > 0) {
+            setUp.setEngine(IFDSSetUp.Engine.valueOf(args[0]));
+        }
+        /* e.g. -Difds.metrics=metrics.json, or metrics.prom for the Prometheus text format */
+        String metricsFile = System.getProperty("ifds.metrics");
+        if (metricsFile != null) {
+            setUp.setMetricsFile(Path.of(metricsFile));
+        }
+        /* e.g. -Difds.results=results.bin, read it back with ResultFile */
+        String resultFile = System.getProperty("ifds.results");
+        if (resultFile != null) {
+            setUp.setResultFile(Path.of(resultFile));
+            /* e.g. -Difds.releaseAfterExport=true to drop the solver once its results are in the file */
+            setUp.setReleaseAfterExport(Boolean.getBoolean("ifds.releaseAfterExport"));
+        }
+        /* e.g. -Difds.maxSolveMillis=600000 -Difds.maxHeapFraction=0.8, results are partial past either */
+        setUp.setSolveBudget(Long.getLong("ifds.maxSolveMillis", SolveBudget.UNLIMITED),
+                Double.parseDouble(System.getProperty("ifds.maxHeapFraction", "0")));
+        /* e.g. -Difds.loadThreads=0 to convert method bodies lazily while the call graph is built */
+        String loadThreads = System.getProperty("ifds.loadThreads");
+        if (loadThreads != null) {
+            setUp.setLoadParallelism(Integer.parseInt(loadThreads));
+        }
+        setUp.executeStaticAnalysis("jlink.Test");
 
-        Set<?> result = setUp.getResultsAtLastStatement(analysis);
+        AnalysisRun run = setUp.getLastRun();
+        if (run.isReleased()) {
+            String entry = run.getEntryMethod().getSignature().toString();
+            ResultFile results = ResultFile.open(Path.of(resultFile));
+            System.out.println(results.constantsAt(entry, results.getStmtCount(entry) - 1));
+        } else {
+            System.out.println(run.getResultsAtLastStatement());
+        }
+        if (setUp.getLastRun().isPartial()) {
+            System.out.println("partial: " + setUp.getLastRun().getBudget().getReason());
+        }
+        System.out.println(setUp.getLastRun().getTimings());
+        if (setUp.getLastRun().getCalleeContexts() != null) {
+            System.out.println(setUp.getLastRun().getCalleeContexts());
+        }
 
         System.out.println("done");
     }
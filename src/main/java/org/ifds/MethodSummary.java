@@ -0,0 +1,156 @@
+package org.ifds;
+
+import com.google.common.collect.Table;
+import heros.EdgeFunction;
+import heros.edgefunc.AllTop;
+import heros.edgefunc.EdgeIdentity;
+import sootup.core.jimple.basic.Local;
+import sootup.core.jimple.common.constant.StringConstant;
+import sootup.core.jimple.common.stmt.JReturnStmt;
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.model.SootMethod;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * What a method returns, as a function of the value of each parameter it was entered with. This is
+ * the end summary the IDE solver computed for the method, restricted to the returned local, so
+ * callers can apply it instead of descending into the method again.
+ *
+ * A summary only covers the parameters the method was entered with when it was computed. A call
+ * site that passes a value for any other parameter has to descend into the method.
+ */
+public final class MethodSummary {
+
+    /* index of the zero fact, i.e. what the method returns regardless of its parameters */
+    public static final int ZERO = -1;
+
+    private final byte[] bodyHash;
+    private final Set<Integer> entered;
+    private final Map<Integer, StringEdgeFunction> returnFunctions;
+
+    MethodSummary(byte[] bodyHash, Set<Integer> entered, Map<Integer, StringEdgeFunction> returnFunctions) {
+        this.bodyHash = bodyHash;
+        this.entered = Set.copyOf(entered);
+        this.returnFunctions = Map.copyOf(returnFunctions);
+    }
+
+    /* Builds the summary from the solver's end summaries of the method, keyed by entry fact. */
+    static MethodSummary of(SootMethod method, byte[] bodyHash, Local zero,
+                            Map<Local, Table<Stmt, Local, EdgeFunction<String>>> endSummaries) {
+        List<Local> parameters = method.getBody().getParameterLocals();
+        Set<Integer> entered = new HashSet<>();
+        Map<Integer, StringEdgeFunction> returnFunctions = new HashMap<>();
+        endSummaries.forEach((entryFact, exits) -> {
+            int index = ZERO;
+            if (!entryFact.equals(zero)) {
+                index = parameters.indexOf(entryFact);
+                if (index < 0) {
+                    // not a fact the call flow enters methods with
+                    return;
+                }
+            }
+            entered.add(index);
+            EdgeFunction<String> joined = null;
+            for (Table.Cell<Stmt, Local, EdgeFunction<String>> exit : exits.cellSet()) {
+                EdgeFunction<String> returned =
+                        returnedBy(exit.getRowKey(), exit.getColumnKey(), exit.getValue(), zero);
+                if (returned != null) {
+                    joined = joined == null ? returned : joined.joinWith(returned);
+                }
+            }
+            if (joined != null) {
+                returnFunctions.put(index, toStringEdgeFunction(joined));
+            }
+        });
+        return new MethodSummary(bodyHash, entered, returnFunctions);
+    }
+
+    /* Mirrors IDEAnalysisProblem.getReturnFlow and its return edge function. */
+    private static EdgeFunction<String> returnedBy(Stmt exitStmt, Local exitFact, EdgeFunction<String> function,
+                                                   Local zero) {
+        if (!(exitStmt instanceof JReturnStmt returnStmt) || function instanceof AllTop) {
+            return null;
+        }
+        if (returnStmt.getOp() instanceof Local op && op.equals(exitFact)) {
+            return function;
+        } else if (returnStmt.getOp() instanceof StringConstant constant && exitFact.equals(zero)) {
+            return StringEdgeFunction.constant(constant.getValue());
+        }
+        return null;
+    }
+
+    private static StringEdgeFunction toStringEdgeFunction(EdgeFunction<String> function) {
+        if (function instanceof EdgeIdentity) {
+            return StringEdgeFunction.identity();
+        } else if (function instanceof StringEdgeFunction stringFunction) {
+            return stringFunction;
+        }
+        return StringEdgeFunction.top();
+    }
+
+    /* This summary extended with the parameters only the other one was entered with. */
+    MethodSummary merge(MethodSummary other) {
+        Set<Integer> mergedEntered = new HashSet<>(other.entered);
+        mergedEntered.addAll(entered);
+        Map<Integer, StringEdgeFunction> mergedFunctions = new HashMap<>(other.returnFunctions);
+        for (Integer index : entered) {
+            mergedFunctions.remove(index);
+        }
+        mergedFunctions.putAll(returnFunctions);
+        return new MethodSummary(bodyHash, mergedEntered, mergedFunctions);
+    }
+
+    public byte[] getBodyHash() {
+        return bodyHash.clone();
+    }
+
+    boolean hasBodyHash(byte[] hash) {
+        return Arrays.equals(bodyHash, hash);
+    }
+
+    /* Whether the method was analyzed as entered with a value for the parameter, or ZERO. */
+    public boolean covers(int index) {
+        return entered.contains(index);
+    }
+
+    public Set<Integer> getEntered() {
+        return Collections.unmodifiableSet(entered);
+    }
+
+    /* The return value as a function of the parameter's value, null if it does not depend on it. */
+    public StringEdgeFunction getReturnFunction(int index) {
+        return returnFunctions.get(index);
+    }
+
+    public Map<Integer, StringEdgeFunction> getReturnFunctions() {
+        return returnFunctions;
+    }
+
+    /* Same entries, ignoring the body hash. */
+    boolean sameFunctions(MethodSummary other) {
+        return other != null && entered.equals(other.entered) && returnFunctions.equals(other.returnFunctions);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof MethodSummary other && Arrays.equals(bodyHash, other.bodyHash) && sameFunctions(other);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(Arrays.hashCode(bodyHash), entered, returnFunctions);
+    }
+
+    @Override
+    public String toString() {
+        return "entered " + entered + ", returns " + returnFunctions;
+    }
+}
@@ -0,0 +1,363 @@
+package org.ifds;
+
+import com.google.common.collect.Table;
+import heros.EdgeFunction;
+import sootup.core.jimple.basic.Local;
+import sootup.core.jimple.common.ref.JStaticFieldRef;
+import sootup.core.jimple.common.stmt.JAssignStmt;
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.model.SootMethod;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * {@link MethodSummary}s kept between runs of the IDE engine, keyed by method signature.
+ *
+ * Before a run, every reachable method is hashed over its statements, the resolved targets of its
+ * calls, the constants of the static fields it reads and the analysis configuration, i.e. the
+ * widening bounds and the string API models. A method whose hash changed, or that has no summary
+ * yet, is dirty. Dirty methods are
+ * summarized on their own first, see {@link SummaryIDESolver#solveSummaries}, and only if a summary
+ * differs from the stored one do the callers of the method become dirty in turn, since theirs may
+ * depend on it. See {@link #refine}. Once nothing is dirty any more, the run applies the summaries
+ * of all methods but the entry method at their call sites, and the solver only descends where a
+ * summary does not cover the values passed. After the run, the summaries of the methods that were
+ * solved are replaced and the store is written back.
+ */
+public class MethodSummaryStore {
+
+    private static final int MAGIC = 0x49464d53;
+    private static final int VERSION = 1;
+    private static final byte CONSTANT = 0;
+    private static final byte CONCAT = 1;
+
+    /* The summaries a run may apply, the hashes of all methods it reaches, the methods whose summaries have
+       to be computed again before the run and those that already were. */
+    public record Plan(Map<SootMethod, MethodSummary> reusable, Map<SootMethod, byte[]> hashes,
+                       Set<SootMethod> dirty, Set<SootMethod> resummarized) {
+    }
+
+    private final Path file;
+    private Map<String, MethodSummary> summaries;
+    private int lastReused;
+    private int lastResummarized;
+    private int lastSolved;
+    private int lastChanged;
+
+    public MethodSummaryStore(Path file) {
+        this.file = file;
+    }
+
+    /* Library methods are never descended into, so they neither have summaries nor make callers dirty. The
+       entry method is solved by every run and never summarized. */
+    public synchronized Plan plan(CachedInterproceduralCFG icfg, SootMethod entryMethod,
+                                  StringAnalysisContext context) {
+        AnalysisScope scope = context.getScope();
+        byte[] configHash = configHash(context);
+        Map<String, MethodSummary> stored = summaries();
+        Map<SootMethod, byte[]> hashes = new HashMap<>();
+        Set<SootMethod> dirty = new HashSet<>();
+        Map<SootMethod, MethodSummary> reusable = new HashMap<>();
+        for (SootMethod method : icfg.getMethods()) {
+            if (scope.isLibrary(method)) {
+                continue;
+            }
+            byte[] hash = bodyHash(method, icfg, context.getFieldConstants(), configHash);
+            hashes.put(method, hash);
+            if (method.equals(entryMethod)) {
+                continue;
+            }
+            MethodSummary summary = stored.get(key(method));
+            if (summary == null || !summary.hasBodyHash(hash)) {
+                dirty.add(method);
+            } else {
+                reusable.put(method, summary);
+            }
+        }
+        lastResummarized = 0;
+        lastReused = reusable.size();
+        return new Plan(reusable, hashes, dirty, new HashSet<>());
+    }
+
+    /**
+     * Stores the summaries the solver computed for the dirty methods of the plan, and returns the plan
+     * for the next step: those methods can be reused now, and the callers of any whose summary
+     * changed are dirty. A caller that has been summarized again already is not summarized a second
+     * time, the run descends into it. Methods whose summary did not change leave their callers alone.
+     */
+    public synchronized Plan refine(Plan plan, SummaryIDESolver solver, Local zero, CachedInterproceduralCFG icfg) {
+        Map<String, MethodSummary> stored = summaries();
+        Map<SootMethod, MethodSummary> reusable = new HashMap<>(plan.reusable());
+        Set<SootMethod> resummarized = new HashSet<>(plan.resummarized());
+        Set<SootMethod> changed = new HashSet<>();
+        for (SootMethod method : plan.dirty()) {
+            MethodSummary previous = stored.get(key(method));
+            MethodSummary summary = MethodSummary.of(method, plan.hashes().get(method), zero,
+                    solver.endSummariesOf(method));
+            if (!summary.sameFunctions(previous)) {
+                changed.add(method);
+            }
+            stored.put(key(method), summary);
+            reusable.put(method, summary);
+            resummarized.add(method);
+        }
+        Set<SootMethod> dirty = new HashSet<>();
+        Deque<SootMethod> worklist = new ArrayDeque<>(changed);
+        while (!worklist.isEmpty()) {
+            for (Stmt callSite : icfg.getCallersOf(worklist.poll())) {
+                SootMethod caller = icfg.getMethodOf(callSite);
+                // the entry method is solved anyway, so are methods dropped already
+                if (reusable.remove(caller) == null) {
+                    continue;
+                }
+                if (resummarized.contains(caller)) {
+                    // summarized again before this callee changed, e.g. in a cycle: the run descends into
+                    // it instead, and its callers can no longer rely on its summary either
+                    stored.remove(key(caller));
+                    worklist.add(caller);
+                } else {
+                    dirty.add(caller);
+                }
+            }
+        }
+        lastResummarized = resummarized.size();
+        lastReused = reusable.size();
+        return new Plan(reusable, plan.hashes(), dirty, resummarized);
+    }
+
+    /* Replaces the summaries of the methods the solver descended into, and writes the store. */
+    public synchronized void update(Plan plan, SummaryIDESolver solver, Local zero) {
+        Map<String, MethodSummary> stored = summaries();
+        lastSolved = 0;
+        lastChanged = 0;
+        plan.hashes().forEach((method, hash) -> {
+            Map<Local, Table<Stmt, Local, EdgeFunction<String>>> endSummaries = solver.endSummariesOf(method);
+            if (endSummaries.isEmpty()) {
+                return;
+            }
+            lastSolved++;
+            MethodSummary previous = stored.get(key(method));
+            MethodSummary summary = MethodSummary.of(method, hash, zero, endSummaries);
+            if (plan.reusable().containsKey(method)) {
+                // clean, but descended into for parameters the summary did not cover yet
+                summary = summary.merge(previous);
+            }
+            if (!summary.sameFunctions(previous)) {
+                lastChanged++;
+            }
+            stored.put(key(method), summary);
+        });
+        save();
+    }
+
+    /* Drops the summary of the method, as if its body had changed. */
+    public synchronized void invalidate(String signature) {
+        summaries().remove(signature);
+    }
+
+    public synchronized List<String> getSignatures() {
+        return new ArrayList<>(summaries().keySet());
+    }
+
+    public synchronized int size() {
+        return summaries().size();
+    }
+
+    /* Methods whose summary the last run applied instead of solving them. */
+    public synchronized int getLastReused() {
+        return lastReused;
+    }
+
+    /* Methods summarized on their own before the last run, because they or one of their callees changed. */
+    public synchronized int getLastResummarized() {
+        return lastResummarized;
+    }
+
+    /* Methods the last run descended into. */
+    public synchronized int getLastSolved() {
+        return lastSolved;
+    }
+
+    /* Methods whose summary the last run changed. */
+    public synchronized int getLastChanged() {
+        return lastChanged;
+    }
+
+    private static String key(SootMethod method) {
+        return method.getSignature().toString();
+    }
+
+    /* Hash of the statements of the method, the targets of its calls, the constants of the static fields it
+       reads and the configuration hash. fieldConstants may be null if static fields are not resolved. */
+    static byte[] bodyHash(SootMethod method, CachedInterproceduralCFG icfg, StaticFieldConstantTable fieldConstants,
+                           byte[] configHash) {
+        MessageDigest digest = newDigest();
+        digest.update(configHash);
+        for (Stmt stmt : method.getBody().getStmts()) {
+            digest.update(stmt.toString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            if (stmt.containsInvokeExpr()) {
+                Set<String> targets = new TreeSet<>();
+                icfg.getCalleesOfCallAt(stmt).forEach(target -> targets.add(key(target)));
+                digest.update(targets.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            if (fieldConstants != null && stmt instanceof JAssignStmt<?, ?> assign
+                    && assign.getRightOp() instanceof JStaticFieldRef fieldRef) {
+                // the constant may live in another class, whose changes the statement does not show
+                digest.update(fieldConstants.lookUp(fieldRef).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+        }
+        return digest.digest();
+    }
+
+    /* Hash of what the analysis is configured with, the same for every method of a run. */
+    static byte[] configHash(StringAnalysisContext context) {
+        MessageDigest digest = newDigest();
+        WideningPolicy widening = context.getWidening();
+        StringBuilder config = new StringBuilder();
+        if (widening != null) {
+            config.append(widening.getMaxLength()).append(' ').append(widening.getMaxValuesPerStmt());
+        }
+        config.append('\n').append(context.getStringApiModels().size()).append('\n');
+        StringWriter models = new StringWriter();
+        try {
+            context.getStringApiModels().write(models);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        config.append(models);
+        digest.update(config.toString().getBytes(StandardCharsets.UTF_8));
+        return digest.digest();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Map<String, MethodSummary> summaries() {
+        if (summaries == null) {
+            summaries = load();
+        }
+        return summaries;
+    }
+
+    private Map<String, MethodSummary> load() {
+        Map<String, MethodSummary> loaded = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return loaded;
+            }
+            for (int count = in.readInt(); count > 0; count--) {
+                String signature = readString(in);
+                byte[] hash = new byte[in.readInt()];
+                in.readFully(hash);
+                Set<Integer> entered = new HashSet<>();
+                for (int e = in.readInt(); e > 0; e--) {
+                    entered.add(in.readInt());
+                }
+                Map<Integer, StringEdgeFunction> functions = new HashMap<>();
+                for (int f = in.readInt(); f > 0; f--) {
+                    int index = in.readInt();
+                    functions.put(index, in.readByte() == CONSTANT
+                            ? StringEdgeFunction.constant(readString(in))
+                            : StringEdgeFunction.concat(readString(in), readString(in)));
+                }
+                loaded.put(signature, new MethodSummary(hash, entered, functions));
+            }
+        } catch (NoSuchFileException e) {
+            // first run
+        } catch (EOFException e) {
+            // truncated, start over
+            loaded.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read method summaries " + file, e);
+        }
+        return loaded;
+    }
+
+    private void save() {
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(summaries.size());
+                for (Map.Entry<String, MethodSummary> entry : summaries.entrySet()) {
+                    MethodSummary summary = entry.getValue();
+                    writeString(out, entry.getKey());
+                    byte[] hash = summary.getBodyHash();
+                    out.writeInt(hash.length);
+                    out.write(hash);
+                    out.writeInt(summary.getEntered().size());
+                    for (int index : summary.getEntered()) {
+                        out.writeInt(index);
+                    }
+                    out.writeInt(summary.getReturnFunctions().size());
+                    for (Map.Entry<Integer, StringEdgeFunction> function : summary.getReturnFunctions().entrySet()) {
+                        out.writeInt(function.getKey());
+                        StringEdgeFunction f = function.getValue();
+                        if (f.isConstant()) {
+                            out.writeByte(CONSTANT);
+                            writeString(out, f.getConstant());
+                        } else {
+                            out.writeByte(CONCAT);
+                            writeString(out, f.getPrefix());
+                            writeString(out, f.getSuffix());
+                        }
+                    }
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write method summaries " + file, e);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "method summaries: " + lastReused + " reused, " + lastResummarized + " resummarized, " + lastSolved
+                + " solved, " + lastChanged + " changed, " + size() + " stored";
+    }
+}
@@ -0,0 +1,126 @@
+package org.ifds;
+
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.model.SootMethod;
+import sootup.core.signatures.MethodSignature;
+import sootup.core.views.View;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Converts the Jimple bodies an analysis is going to need up front, on a pool of worker threads,
+ * instead of one at a time while the call graph is being built.
+ *
+ * {@link #scan()} first resolves every class of the input on the calling thread. Building the
+ * call graph resolves them all anyway for the type hierarchy, and afterwards the workers only read
+ * the view's class cache, which is not safe to fill concurrently. {@link #load} then walks the
+ * methods reachable from the entry methods along the declared targets of their calls, converting
+ * each wave of bodies in parallel. Library methods (see {@link AnalysisScope}) are not walked
+ * into: the call graph converts the few it needs lazily, as it did before.
+ */
+public class ParallelBodyLoader {
+
+    private final View<?> view;
+    private final AnalysisScope scope;
+    private final int parallelism;
+    private final LongAdder converted = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private int classes;
+
+    public ParallelBodyLoader(View<?> view, AnalysisScope scope, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
+        }
+        this.view = view;
+        this.scope = scope;
+        this.parallelism = parallelism;
+    }
+
+    /* Resolves every class of the input, returns how many there are. */
+    public int scan() {
+        classes = view.getClasses().size();
+        return classes;
+    }
+
+    /* Converts the bodies of the application methods reachable from the entry methods, returns how many. */
+    public long load(Collection<? extends SootMethod> entryMethods) {
+        long before = converted.sum();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            Set<MethodSignature> seen = new HashSet<>();
+            List<SootMethod> wave = new ArrayList<>();
+            for (SootMethod entryMethod : entryMethods) {
+                if (seen.add(entryMethod.getSignature()) && isLoaded(entryMethod)) {
+                    wave.add(entryMethod);
+                }
+            }
+            while (!wave.isEmpty()) {
+                List<Future<List<MethodSignature>>> callees = new ArrayList<>(wave.size());
+                for (SootMethod method : wave) {
+                    callees.add(executor.submit(() -> convert(method)));
+                }
+                // the view is only asked for methods on this thread
+                List<SootMethod> next = new ArrayList<>();
+                for (Future<List<MethodSignature>> future : callees) {
+                    for (MethodSignature callee : future.get()) {
+                        if (seen.add(callee)) {
+                            view.getMethod(callee).filter(this::isLoaded).ifPresent(next::add);
+                        }
+                    }
+                }
+                wave = next;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Body conversion failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return converted.sum() - before;
+    }
+
+    private boolean isLoaded(SootMethod method) {
+        return method.hasBody() && !scope.isLibrary(method);
+    }
+
+    /* Converts the body, returns the declared targets of its calls. */
+    private List<MethodSignature> convert(SootMethod method) {
+        List<MethodSignature> callees = new ArrayList<>();
+        try {
+            for (Stmt stmt : method.getBody().getStmts()) {
+                if (stmt.containsInvokeExpr()) {
+                    callees.add(stmt.getInvokeExpr().getMethodSignature());
+                }
+            }
+            converted.increment();
+        } catch (RuntimeException e) {
+            // left to the call graph, which converts it again and reports the failure where it matters
+            failed.increment();
+        }
+        return callees;
+    }
+
+    public long getConvertedCount() {
+        return converted.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    @Override
+    public String toString() {
+        return classes + " classes, " + converted.sum() + " bodies converted on " + parallelism + " threads"
+                + (failed.sum() > 0 ? ", " + failed.sum() + " failed" : "");
+    }
+}
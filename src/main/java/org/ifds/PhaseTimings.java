@@ -0,0 +1,61 @@
+package org.ifds;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Wall-clock time spent in each phase of an analysis, from reading the input to solving. The
+ * first two phases are shared by every run on a view, see {@link IFDSSetUp#getSetupTimings()}.
+ */
+public final class PhaseTimings {
+
+    public enum Phase {
+        /* resolving the classes of the input */
+        INPUT_SCAN,
+        /* converting the bytecode of reachable application methods to Jimple */
+        BODY_CONVERSION,
+        /* building or loading the call graph, including bodies converted lazily on the way */
+        CALL_GRAPH,
+        /* wrapping the call graph into the interprocedural CFG the solver runs on */
+        ICFG,
+        SOLVE
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final AtomicLongArray nanos = new AtomicLongArray(PHASES.length);
+
+    public void record(Phase phase, long nanos) {
+        this.nanos.addAndGet(phase.ordinal(), nanos);
+    }
+
+    public long getNanos(Phase phase) {
+        return nanos.get(phase.ordinal());
+    }
+
+    public long getTotalNanos() {
+        long total = 0;
+        for (Phase phase : PHASES) {
+            total += getNanos(phase);
+        }
+        return total;
+    }
+
+    /* A copy to record the phases of one run into, on top of the phases recorded so far. */
+    public PhaseTimings copy() {
+        PhaseTimings copy = new PhaseTimings();
+        for (Phase phase : PHASES) {
+            copy.record(phase, getNanos(phase));
+        }
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Phase phase : PHASES) {
+            text.append(phase.name().toLowerCase().replace('_', ' ')).append(' ')
+                    .append(getNanos(phase) / 1_000_000).append(" ms, ");
+        }
+        return text.append("total ").append(getTotalNanos() / 1_000_000).append(" ms").toString();
+    }
+}
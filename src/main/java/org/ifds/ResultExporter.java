@@ -0,0 +1,217 @@
+package org.ifds;
+
+import heros.InterproceduralCFG;
+import sootup.core.jimple.basic.Local;
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.model.SootMethod;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Streams the string constants of a solved run to a file, one method at a time, so only the
+ * statements of the method being written are held in memory. Read the file with {@link ResultFile}.
+ *
+ * For every statement, the file holds the string locals whose value before the statement is a
+ * constant, under their local name. Locals that are TOP or unknown are left out, as are statements
+ * and methods without any constant. Statements are identified by their index in the body.
+ *
+ * Layout: a header, the method records as they are streamed, then an index of the method records
+ * and a fixed-size trailer pointing at it:
+ * <pre>
+ * header:  magic, version
+ * method:  statement count, strings, records; record = statement index, bindings; binding = local, value
+ * index:   methods (signature, offset)
+ * trailer: index offset, magic
+ * </pre>
+ * Each method has its own string table (length, UTF-8 bytes), names and values are ints into it,
+ * offsets are longs. The index entries go to a temporary file as the methods are written and are
+ * appended on close, so the exporter holds nothing of the methods it has already written.
+ */
+public class ResultExporter implements Closeable {
+
+    static final int MAGIC = 0x49464452;
+    static final int VERSION = 2;
+    /* index offset, magic */
+    static final int TRAILER_SIZE = 8 + 4;
+
+    private final Path file;
+    private final Path tmp;
+    private final DataOutputStream out;
+    private final Path indexTmp;
+    private final DataOutputStream index;
+    private int methods;
+    private long stmts;
+    private boolean closed;
+
+    /* The file only appears once the exporter is closed. */
+    public ResultExporter(Path file) throws IOException {
+        this.file = file.toAbsolutePath();
+        Files.createDirectories(this.file.getParent());
+        this.tmp = Files.createTempFile(this.file.getParent(), this.file.getFileName().toString(), ".tmp");
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)));
+        this.indexTmp = Files.createTempFile(this.file.getParent(), this.file.getFileName().toString(), ".index.tmp");
+        this.index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexTmp)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    /* Writes every method reachable from the entry method of the run. */
+    public static void export(AnalysisRun run, Path file) throws IOException {
+        try (ResultExporter exporter = new ResultExporter(file)) {
+            exporter.write(run);
+        }
+    }
+
+    public void write(AnalysisRun run) throws IOException {
+        InterproceduralCFG<Stmt, SootMethod> icfg = run.getInterproceduralCFG();
+        Set<SootMethod> seen = new HashSet<>();
+        Deque<SootMethod> worklist = new ArrayDeque<>();
+        seen.add(run.getEntryMethod());
+        worklist.add(run.getEntryMethod());
+        while (!worklist.isEmpty()) {
+            SootMethod method = worklist.poll();
+            if (!method.hasBody()) {
+                continue;
+            }
+            writeMethod(run, method);
+            for (Stmt callSite : icfg.getCallsFromWithin(method)) {
+                for (SootMethod callee : icfg.getCalleesOfCallAt(callSite)) {
+                    if (seen.add(callee)) {
+                        worklist.add(callee);
+                    }
+                }
+            }
+        }
+    }
+
+    private void writeMethod(AnalysisRun run, SootMethod method) throws IOException {
+        List<Stmt> body = method.getBody().getStmts();
+        Map<Integer, Map<String, String>> constants = new TreeMap<>();
+        for (int i = 0; i < body.size(); i++) {
+            Map<String, String> values = constantsAt(run, body.get(i));
+            if (!values.isEmpty()) {
+                constants.put(i, values);
+            }
+        }
+        writeMethod(method.getSignature().toString(), body.size(), constants);
+    }
+
+    /* Statement index to local name to value, for one method. A method written twice is read from its last record. */
+    public void writeMethod(String signature, int stmtCount, Map<Integer, Map<String, String>> constants)
+            throws IOException {
+        if (constants.isEmpty()) {
+            return;
+        }
+        // ResultFile relies on the records being sorted
+        constants = new TreeMap<>(constants);
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        constants.values().forEach(bindings -> bindings.forEach((local, value) -> {
+            strings.putIfAbsent(local, strings.size());
+            strings.putIfAbsent(value, strings.size());
+        }));
+
+        writeString(index, signature);
+        index.writeLong(out.size());
+        out.writeInt(stmtCount);
+        out.writeInt(strings.size());
+        for (String string : strings.keySet()) {
+            writeString(out, string);
+        }
+        out.writeInt(constants.size());
+        for (Map.Entry<Integer, Map<String, String>> stmt : constants.entrySet()) {
+            out.writeInt(stmt.getKey());
+            out.writeInt(stmt.getValue().size());
+            for (Map.Entry<String, String> binding : stmt.getValue().entrySet()) {
+                out.writeInt(strings.get(binding.getKey()));
+                out.writeInt(strings.get(binding.getValue()));
+            }
+        }
+        methods++;
+        stmts += constants.size();
+    }
+
+    /* The constant string locals at the statement, joined over every result the engine has there. */
+    private static Map<String, String> constantsAt(AnalysisRun run, Stmt stmt) {
+        Map<Local, String> joined = new LinkedHashMap<>();
+        for (Object result : run.getResultsAt(stmt)) {
+            @SuppressWarnings("unchecked")
+            Map<Local, String> environment = (Map<Local, String>) result;
+            environment.forEach((local, value) -> joined.merge(local, value, StringLattice.v()::join));
+        }
+        Map<String, String> constants = new TreeMap<>();
+        joined.forEach((local, value) -> {
+            if (StringLattice.isTop(value) || StringLattice.isBottom(value)
+                    || !StringTypes.mayHoldString(local.getType())) {
+                return;
+            }
+            // the environment engine starts every local at "", which is not a constant
+            if (run.getEngine() == IFDSSetUp.Engine.IFDS_ENVIRONMENT && value.isEmpty()) {
+                return;
+            }
+            constants.put(local.getName(), value);
+        });
+        return constants;
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public int getMethodCount() {
+        return methods;
+    }
+
+    public long getStmtCount() {
+        return stmts;
+    }
+
+    /* Appends the index and the trailer, then moves the file into place. */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            index.close();
+            long indexOffset = out.size();
+            out.writeInt(methods);
+            Files.copy(indexTmp, out);
+            if (out.size() == Integer.MAX_VALUE) {
+                // DataOutputStream stops counting there, and a mapped buffer can't hold more
+                throw new IOException("Results exceed 2 GB: " + file);
+            }
+            out.writeLong(indexOffset);
+            out.writeInt(MAGIC);
+            out.close();
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            index.close();
+            out.close();
+            Files.deleteIfExists(indexTmp);
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "results: " + stmts + " statements with constants in " + methods + " methods";
+    }
+}
@@ -0,0 +1,139 @@
+package org.ifds;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Looks up string constants in a file written by {@link ResultExporter}. The file is memory-mapped;
+ * opening it only decodes the method index, a method's strings and statements are decoded when
+ * they are asked for. Thread-safe, every lookup reads through its own view of the buffer.
+ */
+public class ResultFile {
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    /* method signature to the offset of its record */
+    private final Map<String, Integer> methods;
+
+    private ResultFile(Path file, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        try {
+            if (buffer.getInt(0) != ResultExporter.MAGIC || buffer.getInt(4) != ResultExporter.VERSION
+                    || buffer.getInt(buffer.limit() - 4) != ResultExporter.MAGIC) {
+                throw new IOException("Not a result file: " + file);
+            }
+            ByteBuffer in = buffer.duplicate();
+            in.position(buffer.limit() - ResultExporter.TRAILER_SIZE);
+            int indexOffset = Math.toIntExact(in.getLong());
+
+            in.position(indexOffset);
+            int count = in.getInt();
+            methods = new LinkedHashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                methods.put(readString(in), Math.toIntExact(in.getLong()));
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | ArithmeticException e) {
+            throw new IOException("Truncated or corrupt result file: " + file, e);
+        }
+    }
+
+    public static ResultFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new ResultFile(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /* Signatures of the methods with at least one constant, as MethodSignature.toString() prints them. */
+    public Set<String> getMethods() {
+        return Collections.unmodifiableSet(methods.keySet());
+    }
+
+    /* Statement index to local name to value, empty if the method has no constants. */
+    public Map<Integer, Map<String, String>> constantsIn(String methodSignature) {
+        Integer offset = methods.get(methodSignature);
+        if (offset == null) {
+            return Map.of();
+        }
+        ByteBuffer in = buffer.duplicate();
+        in.position(offset + 4);
+        String[] strings = strings(in);
+        Map<Integer, Map<String, String>> constants = new TreeMap<>();
+        for (int s = in.getInt(); s > 0; s--) {
+            int index = in.getInt();
+            constants.put(index, bindings(in, strings));
+        }
+        return constants;
+    }
+
+    /* Local name to value before the statement at the index, empty if none is a constant. */
+    public Map<String, String> constantsAt(String methodSignature, int stmtIndex) {
+        Integer offset = methods.get(methodSignature);
+        if (offset == null) {
+            return Map.of();
+        }
+        ByteBuffer in = buffer.duplicate();
+        in.position(offset + 4);
+        String[] strings = strings(in);
+        for (int s = in.getInt(); s > 0; s--) {
+            int index = in.getInt();
+            if (index == stmtIndex) {
+                return bindings(in, strings);
+            }
+            if (index > stmtIndex) {
+                // records are sorted by statement index
+                break;
+            }
+            int bindings = in.getInt();
+            in.position(in.position() + bindings * 8);
+        }
+        return Map.of();
+    }
+
+    /* Number of statements of the method when it was analyzed, -1 if it is not in the file. */
+    public int getStmtCount(String methodSignature) {
+        Integer offset = methods.get(methodSignature);
+        return offset == null ? -1 : buffer.getInt(offset);
+    }
+
+    /* The string table of a method. */
+    private static String[] strings(ByteBuffer in) {
+        String[] strings = new String[in.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = readString(in);
+        }
+        return strings;
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> bindings(ByteBuffer in, String[] strings) {
+        int count = in.getInt();
+        Map<String, String> bindings = new HashMap<>(count * 2);
+        for (int b = 0; b < count; b++) {
+            bindings.put(strings[in.getInt()], strings[in.getInt()]);
+        }
+        return bindings;
+    }
+
+    @Override
+    public String toString() {
+        return file + ": " + methods.size() + " methods";
+    }
+}
@@ -0,0 +1,136 @@
+package org.ifds;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wall-clock and heap limits for one solve. Once a limit is hit the budget is exhausted for good:
+ * {@link BudgetedFlowFunctions} stop descending into callees and make every fact they produce TOP,
+ * so the solver drains its worklist quickly and the results stay sound, only less precise.
+ *
+ * Heros keeps every jump function until its second phase has computed the values from them, so
+ * the memory already used is not given back; the budget stops it from growing further.
+ *
+ * The heap limit is checked against what the heap pools held after their last collection, which
+ * is live data, not against the heap in use, which also counts garbage not collected yet. Only
+ * collections since the start of the solve count, the previous run may have left more behind.
+ */
+public class SolveBudget {
+
+    public static final long UNLIMITED = 0;
+    /* heap usage is only sampled every so many checks, reading it is not free */
+    private static final int HEAP_CHECK_INTERVAL = 1024;
+
+    private final long maxSolveNanos;
+    private final long maxHeapBytes;
+    private final List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final AtomicInteger checks = new AtomicInteger();
+    private final List<Runnable> exhaustedListeners = new CopyOnWriteArrayList<>();
+    private volatile long startNanos;
+    private volatile long startCollections;
+    private volatile boolean exhausted;
+    private volatile String reason;
+
+    /* maxSolveMillis and maxHeapFraction (of the maximum heap) 0 for no limit */
+    public SolveBudget(long maxSolveMillis, double maxHeapFraction) {
+        if (maxSolveMillis < 0 || maxHeapFraction < 0 || maxHeapFraction > 1) {
+            throw new IllegalArgumentException("Invalid solve budget: " + maxSolveMillis + " ms, " + maxHeapFraction);
+        }
+        this.maxSolveNanos = maxSolveMillis * 1_000_000;
+        this.maxHeapBytes = (long) (maxHeapFraction * Runtime.getRuntime().maxMemory());
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()) {
+                heapPools.add(pool);
+            }
+        }
+        start();
+    }
+
+    /* null if neither limit is set, so an unbudgeted run does not check anything */
+    public static SolveBudget of(long maxSolveMillis, double maxHeapFraction) {
+        return maxSolveMillis == UNLIMITED && maxHeapFraction == UNLIMITED
+                ? null
+                : new SolveBudget(maxSolveMillis, maxHeapFraction);
+    }
+
+    /* Starts the clock, called right before solving. */
+    public void start() {
+        startNanos = System.nanoTime();
+        startCollections = collections();
+    }
+
+    /* Runs the listener once, on the thread that exhausts the budget, e.g. to drop caches. */
+    public void whenExhausted(Runnable listener) {
+        exhaustedListeners.add(listener);
+    }
+
+    /* Checks the limits, called for every propagation. */
+    public boolean check() {
+        if (exhausted) {
+            return true;
+        }
+        if (maxSolveNanos != UNLIMITED && System.nanoTime() - startNanos > maxSolveNanos) {
+            exhaust("solve time exceeded " + maxSolveNanos / 1_000_000 + " ms");
+        } else if (maxHeapBytes != UNLIMITED && checks.incrementAndGet() % HEAP_CHECK_INTERVAL == 0) {
+            long live = collections() > startCollections ? heapUsedAfterCollection() : 0;
+            if (live > maxHeapBytes) {
+                exhaust("live heap " + live / (1024 * 1024) + " MB exceeded " + maxHeapBytes / (1024 * 1024) + " MB");
+            }
+        }
+        return exhausted;
+    }
+
+    private long collections() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    /* What the heap pools held after their last collection. */
+    private long heapUsedAfterCollection() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage != null) {
+                used += usage.getUsed();
+            }
+        }
+        return used;
+    }
+
+    private synchronized void exhaust(String reason) {
+        if (exhausted) {
+            return;
+        }
+        this.reason = reason;
+        exhausted = true;
+        exhaustedListeners.forEach(Runnable::run);
+    }
+
+    /* Whether a limit was hit, without checking the limits again. */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    /* null if no limit was hit */
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return "budget: " + (maxSolveNanos == UNLIMITED ? "no time limit" : maxSolveNanos / 1_000_000 + " ms")
+                + ", " + (maxHeapBytes == UNLIMITED ? "no heap limit" : maxHeapBytes / (1024 * 1024) + " MB heap")
+                + (exhausted ? ", exhausted: " + reason : "");
+    }
+}
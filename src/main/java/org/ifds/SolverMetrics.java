@@ -0,0 +1,360 @@
+package org.ifds;
+
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.model.SootMethod;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What one solve spent its time on: propagations and flow function time per kind and per method,
+ * the distinct facts reaching every statement, a histogram of fact sizes (the known locals of an
+ * environment), and how often values went to TOP.
+ *
+ * Metrics are collected by {@link InstrumentedFlowFunctions}. A run without metrics does not wrap
+ * its flow functions at all, so disabled metrics cost nothing per propagation. All counters are
+ * thread-safe. Distinct facts are counted by their hash codes, so the metrics keep no fact alive
+ * after the solve; two facts with the same hash code count once. Export with {@link #toJson()} or
+ * {@link #toPrometheus()}, or {@link #write(Path)}.
+ */
+public class SolverMetrics {
+
+    public enum Kind {
+        NORMAL, CALL, RETURN, CALL_TO_RETURN
+    }
+
+    /* methods listed in the Prometheus export, which should not have one series per method */
+    static final int PROMETHEUS_METHODS = 20;
+    /* histogram buckets: 0, 1, 2-3, 4-7, ... */
+    private static final int BUCKETS = 33;
+
+    private static final class MethodStats {
+        final LongAdder propagations = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+    }
+
+    private final String targetClassName;
+    private final IFDSSetUp.Engine engine;
+    private final LongAdder[] propagations = newAdders(Kind.values().length);
+    private final LongAdder[] nanos = newAdders(Kind.values().length);
+    private final LongAdder targets = new LongAdder();
+    private final LongAdder topTargets = new LongAdder();
+    private final LongAdder[] factSizes = newAdders(BUCKETS);
+    private final LongAccumulator largestFact = new LongAccumulator(Math::max, 0);
+    private final Map<SootMethod, MethodStats> methods = new ConcurrentHashMap<>();
+    /* hash codes of the facts reaching each statement */
+    private final Map<Stmt, Set<Integer>> factsPerStmt = new ConcurrentHashMap<>();
+    private final Map<Stmt, SootMethod> methodOfStmt = new ConcurrentHashMap<>();
+    private volatile long solveNanos;
+    private volatile long widenings;
+    private volatile long calleeContexts;
+    private volatile long avoidedCalleeContexts;
+
+    public SolverMetrics(String targetClassName, IFDSSetUp.Engine engine) {
+        this.targetClassName = targetClassName;
+        this.engine = engine;
+    }
+
+    private static LongAdder[] newAdders(int n) {
+        LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /* One computeTargets at stmt, which belongs to method (null if the CFG does not know it). */
+    void recordPropagation(Kind kind, Stmt stmt, SootMethod method, Object source, long elapsedNanos) {
+        propagations[kind.ordinal()].increment();
+        nanos[kind.ordinal()].add(elapsedNanos);
+        if (method != null) {
+            MethodStats stats = methods.computeIfAbsent(method, m -> new MethodStats());
+            stats.propagations.increment();
+            stats.nanos.add(elapsedNanos);
+            methodOfStmt.putIfAbsent(stmt, method);
+        }
+        factsPerStmt.computeIfAbsent(stmt, s -> ConcurrentHashMap.newKeySet()).add(source.hashCode());
+    }
+
+    /* One computed target of the given size, i.e. number of known locals. */
+    void recordTarget(int size, boolean top) {
+        targets.increment();
+        if (top) {
+            topTargets.increment();
+        }
+        factSizes[bucket(size)].increment();
+        largestFact.accumulate(size);
+    }
+
+    void recordSolve(long solveNanos, WideningPolicy widening) {
+        this.solveNanos = solveNanos;
+        this.widenings = widening == null ? 0 : widening.getWideningCount();
+    }
+
+    /* Entry contexts the callees were analyzed in, and analyses narrowing them avoided, see CalleeContextCache. */
+    void recordCalleeContexts(long contexts, long avoided) {
+        this.calleeContexts = contexts;
+        this.avoidedCalleeContexts = avoided;
+    }
+
+    private static int bucket(long value) {
+        return value <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    /* Lower bound of a histogram bucket. */
+    private static long bucketFloor(int bucket) {
+        return bucket == 0 ? 0 : 1L << (bucket - 1);
+    }
+
+    public long getPropagations(Kind kind) {
+        return propagations[kind.ordinal()].sum();
+    }
+
+    public long getPropagations() {
+        long sum = 0;
+        for (LongAdder adder : propagations) {
+            sum += adder.sum();
+        }
+        return sum;
+    }
+
+    public long getLargestFact() {
+        return largestFact.get();
+    }
+
+    /* Fraction of computed targets holding TOP, 0 for the IDE engine whose facts hold no values. */
+    public double getTopRate() {
+        long computed = targets.sum();
+        return computed == 0 ? 0 : (double) topTargets.sum() / computed;
+    }
+
+    /* Widenings per propagation. */
+    public double getWideningRate() {
+        long total = getPropagations();
+        return total == 0 ? 0 : (double) widenings / total;
+    }
+
+    public int getDistinctFacts(Stmt stmt) {
+        Set<Integer> facts = factsPerStmt.get(stmt);
+        return facts == null ? 0 : facts.size();
+    }
+
+    /* Per-method totals, most expensive first. */
+    public record MethodMetrics(SootMethod method, long propagations, long nanos, long distinctFacts,
+                                int maxDistinctFactsPerStmt) {
+    }
+
+    public List<MethodMetrics> getMethodMetrics() {
+        Map<SootMethod, long[]> facts = new HashMap<>();
+        factsPerStmt.forEach((stmt, set) -> {
+            SootMethod method = methodOfStmt.get(stmt);
+            if (method != null) {
+                long[] sumAndMax = facts.computeIfAbsent(method, m -> new long[2]);
+                sumAndMax[0] += set.size();
+                sumAndMax[1] = Math.max(sumAndMax[1], set.size());
+            }
+        });
+        List<MethodMetrics> result = new ArrayList<>();
+        methods.forEach((method, stats) -> {
+            long[] sumAndMax = facts.getOrDefault(method, new long[2]);
+            result.add(new MethodMetrics(method, stats.propagations.sum(), stats.nanos.sum(), sumAndMax[0],
+                    (int) sumAndMax[1]));
+        });
+        result.sort(Comparator.comparingLong(MethodMetrics::nanos).reversed());
+        return result;
+    }
+
+    private long[] distinctFactsHistogram() {
+        long[] histogram = new long[BUCKETS];
+        for (Set<Integer> facts : factsPerStmt.values()) {
+            histogram[bucket(facts.size())]++;
+        }
+        return histogram;
+    }
+
+    private long[] factSizeHistogram() {
+        long[] histogram = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] = factSizes[i].sum();
+        }
+        return histogram;
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"target\": ").append(quote(targetClassName)).append(",\n");
+        json.append("  \"engine\": ").append(quote(engine.name())).append(",\n");
+        json.append("  \"solveNanos\": ").append(solveNanos).append(",\n");
+        json.append("  \"propagations\": {");
+        for (Kind kind : Kind.values()) {
+            json.append(kind.ordinal() == 0 ? "" : ", ").append(quote(kind.name())).append(": ")
+                    .append(getPropagations(kind));
+        }
+        json.append("},\n  \"flowFunctionNanos\": {");
+        for (Kind kind : Kind.values()) {
+            json.append(kind.ordinal() == 0 ? "" : ", ").append(quote(kind.name())).append(": ")
+                    .append(nanos[kind.ordinal()].sum());
+        }
+        json.append("},\n");
+        json.append("  \"statements\": ").append(factsPerStmt.size()).append(",\n");
+        json.append("  \"largestFact\": ").append(getLargestFact()).append(",\n");
+        json.append("  \"topRate\": ").append(number(getTopRate())).append(",\n");
+        json.append("  \"widenings\": ").append(widenings).append(",\n");
+        json.append("  \"wideningRate\": ").append(number(getWideningRate())).append(",\n");
+        json.append("  \"calleeContexts\": ").append(calleeContexts).append(",\n");
+        json.append("  \"avoidedCalleeContexts\": ").append(avoidedCalleeContexts).append(",\n");
+        json.append("  \"distinctFactsPerStmt\": ").append(histogramJson(distinctFactsHistogram())).append(",\n");
+        json.append("  \"factSize\": ").append(histogramJson(factSizeHistogram())).append(",\n");
+        json.append("  \"methods\": [");
+        List<MethodMetrics> perMethod = getMethodMetrics();
+        for (int i = 0; i < perMethod.size(); i++) {
+            MethodMetrics method = perMethod.get(i);
+            json.append(i == 0 ? "\n" : ",\n").append("    {\"method\": ")
+                    .append(quote(method.method().getSignature().toString()))
+                    .append(", \"propagations\": ").append(method.propagations())
+                    .append(", \"nanos\": ").append(method.nanos())
+                    .append(", \"distinctFacts\": ").append(method.distinctFacts())
+                    .append(", \"maxDistinctFactsPerStmt\": ").append(method.maxDistinctFactsPerStmt()).append('}');
+        }
+        json.append(perMethod.isEmpty() ? "]\n" : "\n  ]\n").append("}\n");
+        return json.toString();
+    }
+
+    /* Buckets as {"lower bound": count}, empty buckets left out. */
+    private static String histogramJson(long[] histogram) {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] != 0) {
+                json.append(json.length() == 1 ? "" : ", ").append('"').append(bucketFloor(i)).append("\": ")
+                        .append(histogram[i]);
+            }
+        }
+        return json.append('}').toString();
+    }
+
+    /* Prometheus text exposition format, labelled with target and engine. */
+    public String toPrometheus() {
+        String labels = "target=" + quote(targetClassName) + ",engine=" + quote(engine.name());
+        StringBuilder text = new StringBuilder();
+        header(text, "ifds_propagations_total", "counter", "Flow function applications by kind.");
+        for (Kind kind : Kind.values()) {
+            text.append("ifds_propagations_total{").append(labels).append(",kind=").append(quote(kind.name()))
+                    .append("} ").append(getPropagations(kind)).append('\n');
+        }
+        header(text, "ifds_flow_function_seconds_total", "counter", "Time spent computing flow function targets.");
+        for (Kind kind : Kind.values()) {
+            text.append("ifds_flow_function_seconds_total{").append(labels).append(",kind=")
+                    .append(quote(kind.name())).append("} ").append(seconds(nanos[kind.ordinal()].sum())).append('\n');
+        }
+        gauge(text, "ifds_solve_seconds", "Time to solve, excluding the interprocedural CFG.", labels,
+                seconds(solveNanos));
+        gauge(text, "ifds_statements", "Statements reached by the solver.", labels,
+                String.valueOf(factsPerStmt.size()));
+        gauge(text, "ifds_largest_fact", "Most known locals in one fact.", labels, String.valueOf(getLargestFact()));
+        gauge(text, "ifds_top_rate", "Fraction of computed facts holding TOP.", labels, number(getTopRate()));
+        gauge(text, "ifds_widenings", "Values widened to TOP.", labels, String.valueOf(widenings));
+        gauge(text, "ifds_widening_rate", "Widenings per propagation.", labels, number(getWideningRate()));
+        gauge(text, "ifds_callee_contexts", "Entry contexts callees were analyzed in.", labels,
+                String.valueOf(calleeContexts));
+        gauge(text, "ifds_avoided_callee_contexts",
+                "Callee analyses avoided by entering callees with only the arguments they read.", labels,
+                String.valueOf(avoidedCalleeContexts));
+        histogram(text, "ifds_distinct_facts_per_stmt", "Distinct facts reaching a statement.", labels,
+                distinctFactsHistogram());
+        histogram(text, "ifds_fact_size", "Known locals per computed fact.", labels, factSizeHistogram());
+
+        List<MethodMetrics> perMethod = getMethodMetrics();
+        header(text, "ifds_method_seconds", "gauge", "Flow function time of the most expensive methods.");
+        for (MethodMetrics method : perMethod.subList(0, Math.min(PROMETHEUS_METHODS, perMethod.size()))) {
+            text.append("ifds_method_seconds{").append(labels).append(",method=")
+                    .append(quote(method.method().getSignature().toString())).append("} ")
+                    .append(seconds(method.nanos())).append('\n');
+        }
+        header(text, "ifds_method_distinct_facts", "gauge",
+                "Distinct facts over the statements of the most expensive methods.");
+        for (MethodMetrics method : perMethod.subList(0, Math.min(PROMETHEUS_METHODS, perMethod.size()))) {
+            text.append("ifds_method_distinct_facts{").append(labels).append(",method=")
+                    .append(quote(method.method().getSignature().toString())).append("} ")
+                    .append(method.distinctFacts()).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static void header(StringBuilder text, String name, String type, String help) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void gauge(StringBuilder text, String name, String help, String labels, String value) {
+        header(text, name, "gauge", help);
+        text.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    /* Cumulative buckets whose le is the upper bound of each of our power of two buckets. */
+    private static void histogram(StringBuilder text, String name, String help, String labels, long[] histogram) {
+        header(text, name, "histogram", help);
+        long count = 0;
+        long sum = 0;
+        int last = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] != 0) {
+                last = i;
+            }
+        }
+        for (int i = 0; i <= last; i++) {
+            count += histogram[i];
+            /* approximated by the lower bound of the bucket */
+            sum += histogram[i] * bucketFloor(i);
+            long upper = i == 0 ? 0 : (1L << i) - 1;
+            text.append(name).append("_bucket{").append(labels).append(",le=\"").append(upper).append("\"} ")
+                    .append(count).append('\n');
+        }
+        text.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(count).append('\n');
+        text.append(name).append("_sum{").append(labels).append("} ").append(sum).append('\n');
+        text.append(name).append("_count{").append(labels).append("} ").append(count).append('\n');
+    }
+
+    /* Writes JSON for a .json file, the Prometheus text format otherwise. */
+    public void write(Path file) throws IOException {
+        Files.writeString(file, file.getFileName().toString().endsWith(".json") ? toJson() : toPrometheus());
+    }
+
+    private static String seconds(long nanos) {
+        return number(nanos / 1e9);
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    private static String quote(String s) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                default -> quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    @Override
+    public String toString() {
+        return "metrics: " + getPropagations() + " propagations over " + factsPerStmt.size() + " statements, "
+                + methods.size() + " methods, largest fact " + getLargestFact() + ", TOP rate "
+                + number(getTopRate()) + ", " + widenings + " widenings";
+    }
+}
@@ -0,0 +1,211 @@
+package org.ifds;
+
+import heros.InterproceduralCFG;
+import sootup.core.graph.StmtGraph;
+import sootup.core.jimple.basic.Local;
+import sootup.core.jimple.basic.Value;
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.model.SootMethod;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An interprocedural CFG that only contains the statements of each method that matter to string
+ * values: those that define or use a local that may hold a string (see {@link StringTypes}), call
+ * sites, and the start and exit statements. Every other statement, e.g. a goto, an if or int
+ * arithmetic, is an identity in every engine, so the solver would only record a path edge for it.
+ *
+ * A kept statement's successors are the kept statements reachable from it through skipped ones.
+ * Facts therefore flow along def-use chains of the string locals rather than through every
+ * statement, and the solver has no results at skipped statements.
+ *
+ * The sparse graph of a method is built the first time the solver reaches it. The call graph
+ * comes from the wrapped CFG.
+ */
+public class SparseInterproceduralCFG implements InterproceduralCFG<Stmt, SootMethod> {
+
+    /* successors and predecessors between the kept statements of one method */
+    private record SparseGraph(Map<Stmt, List<Stmt>> succs, Map<Stmt, List<Stmt>> preds) {
+    }
+
+    private final InterproceduralCFG<Stmt, SootMethod> delegate;
+    private final Map<SootMethod, SparseGraph> graphs = new ConcurrentHashMap<>();
+    private final AtomicLong keptStmts = new AtomicLong();
+    private final AtomicLong totalStmts = new AtomicLong();
+
+    public SparseInterproceduralCFG(InterproceduralCFG<Stmt, SootMethod> delegate) {
+        this.delegate = delegate;
+    }
+
+    private SparseGraph graphOf(SootMethod method) {
+        return graphs.computeIfAbsent(method, this::build);
+    }
+
+    private SparseGraph graphOf(Stmt stmt) {
+        return graphOf(getMethodOf(stmt));
+    }
+
+    private SparseGraph build(SootMethod method) {
+        StmtGraph<?> graph = method.getBody().getStmtGraph();
+        List<Stmt> stmts = method.getBody().getStmts();
+        Stmt start = graph.getStartingStmt();
+        Set<Stmt> kept = new LinkedHashSet<>();
+        for (Stmt stmt : stmts) {
+            // the last statement is kept so results at the end of a method are still reported
+            if (stmt == start || stmt == stmts.get(stmts.size() - 1) || graph.successors(stmt).isEmpty()
+                    || stmt.containsInvokeExpr() || touchesString(stmt)) {
+                kept.add(stmt);
+            }
+        }
+
+        Map<Stmt, List<Stmt>> succs = new HashMap<>();
+        Map<Stmt, List<Stmt>> preds = new HashMap<>();
+        for (Stmt stmt : kept) {
+            List<Stmt> next = new ArrayList<>();
+            Set<Stmt> visited = new HashSet<>();
+            Deque<Stmt> worklist = new ArrayDeque<>(graph.successors(stmt));
+            while (!worklist.isEmpty()) {
+                Stmt succ = worklist.poll();
+                if (!visited.add(succ)) {
+                    continue;
+                }
+                if (kept.contains(succ)) {
+                    next.add(succ);
+                } else {
+                    worklist.addAll(graph.successors(succ));
+                }
+            }
+            succs.put(stmt, next);
+            for (Stmt succ : next) {
+                preds.computeIfAbsent(succ, k -> new ArrayList<>()).add(stmt);
+            }
+        }
+        keptStmts.addAndGet(kept.size());
+        totalStmts.addAndGet(stmts.size());
+        return new SparseGraph(succs, preds);
+    }
+
+    private static boolean touchesString(Stmt stmt) {
+        for (Value def : stmt.getDefs()) {
+            if (def instanceof Local local && StringTypes.mayHoldString(local.getType())) {
+                return true;
+            }
+        }
+        for (Value use : stmt.getUses()) {
+            if (use instanceof Local local && StringTypes.mayHoldString(local.getType())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* Only methods the solver reached have a sparse graph, the others have no results anyway. */
+    private boolean isKept(Stmt stmt) {
+        SootMethod method = getMethodOf(stmt);
+        SparseGraph graph = method == null ? null : graphs.get(method);
+        return graph != null && graph.succs().containsKey(stmt);
+    }
+
+    /* Statements of the methods built so far that the solver visits, and all statements of those methods. */
+    public long getKeptStmtCount() {
+        return keptStmts.get();
+    }
+
+    public long getTotalStmtCount() {
+        return totalStmts.get();
+    }
+
+    @Override
+    public SootMethod getMethodOf(Stmt n) {
+        return delegate.getMethodOf(n);
+    }
+
+    @Override
+    public List<Stmt> getPredsOf(Stmt u) {
+        return graphOf(u).preds().getOrDefault(u, Collections.emptyList());
+    }
+
+    @Override
+    public List<Stmt> getSuccsOf(Stmt n) {
+        return graphOf(n).succs().getOrDefault(n, Collections.emptyList());
+    }
+
+    @Override
+    public Collection<SootMethod> getCalleesOfCallAt(Stmt n) {
+        return delegate.getCalleesOfCallAt(n);
+    }
+
+    @Override
+    public Collection<Stmt> getCallersOf(SootMethod m) {
+        return delegate.getCallersOf(m);
+    }
+
+    @Override
+    public Set<Stmt> getCallsFromWithin(SootMethod m) {
+        return delegate.getCallsFromWithin(m);
+    }
+
+    @Override
+    public Collection<Stmt> getStartPointsOf(SootMethod m) {
+        return delegate.getStartPointsOf(m);
+    }
+
+    @Override
+    public Collection<Stmt> getReturnSitesOfCallAt(Stmt n) {
+        return getSuccsOf(n);
+    }
+
+    @Override
+    public boolean isCallStmt(Stmt stmt) {
+        return delegate.isCallStmt(stmt);
+    }
+
+    @Override
+    public boolean isExitStmt(Stmt stmt) {
+        return getSuccsOf(stmt).isEmpty();
+    }
+
+    @Override
+    public boolean isStartPoint(Stmt stmt) {
+        return delegate.isStartPoint(stmt);
+    }
+
+    @Override
+    public Set<Stmt> allNonCallStartNodes() {
+        Set<Stmt> nodes = new LinkedHashSet<>();
+        for (Stmt stmt : delegate.allNonCallStartNodes()) {
+            if (isKept(stmt)) {
+                nodes.add(stmt);
+            }
+        }
+        return nodes;
+    }
+
+    @Override
+    public boolean isFallThroughSuccessor(Stmt stmt, Stmt succ) {
+        List<Stmt> succs = getSuccsOf(stmt);
+        return stmt.fallsThrough() && !succs.isEmpty() && succs.get(0) == succ;
+    }
+
+    @Override
+    public boolean isBranchTarget(Stmt stmt, Stmt succ) {
+        return stmt.branches() && getSuccsOf(stmt).contains(succ);
+    }
+
+    @Override
+    public String toString() {
+        return "sparse: " + keptStmts.get() + " of " + totalStmts.get() + " statements kept";
+    }
+}
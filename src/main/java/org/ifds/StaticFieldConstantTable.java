@@ -0,0 +1,154 @@
+package org.ifds;
+
+import sootup.core.jimple.basic.Local;
+import sootup.core.jimple.basic.Value;
+import sootup.core.jimple.common.constant.StringConstant;
+import sootup.core.jimple.common.expr.AbstractInvokeExpr;
+import sootup.core.jimple.common.ref.JFieldRef;
+import sootup.core.jimple.common.ref.JStaticFieldRef;
+import sootup.core.jimple.common.stmt.JAssignStmt;
+import sootup.core.jimple.common.stmt.JIfStmt;
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.jimple.javabytecode.stmt.JSwitchStmt;
+import sootup.core.model.SootClass;
+import sootup.core.model.SootField;
+import sootup.core.model.SootMethod;
+import sootup.core.signatures.FieldSignature;
+import sootup.core.types.ClassType;
+import sootup.core.views.View;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Constant values of static fields, computed once per class from its static initializer. A class
+ * is only indexed the first time one of its fields is read, after which every lookup is a hash
+ * lookup.
+ *
+ * Only final fields are kept, any other field can be reassigned after the initializer has run. The
+ * initializer is folded with {@link StringFoldingVisitor}, so fields built by concatenating
+ * constants (e.g. with a StringBuilder) resolve as well. Its locals start out TOP and a call the
+ * models don't know, e.g. System.getProperty, makes its result TOP. Fields assigned more than once
+ * are TOP. If the initializer branches, walking it in order is not sound for locals, so only fields
+ * assigned a literal directly are kept.
+ */
+public class StaticFieldConstantTable {
+
+    private final View<?> view;
+    private final StringAnalysisContext context;
+    private final Map<ClassType, Map<FieldSignature, String>> constantsByClass = new ConcurrentHashMap<>();
+    /* classes whose initializer is being folded on this thread, to cut initializer cycles */
+    private final ThreadLocal<Set<ClassType>> inProgress = ThreadLocal.withInitial(HashSet::new);
+
+    public StaticFieldConstantTable(View<?> view) {
+        this(view, StringApiModels.shared());
+    }
+
+    public StaticFieldConstantTable(View<?> view, StringApiModels stringApiModels) {
+        this.view = view;
+        // initializers are folded without widening, a field is only read once per class
+        this.context = new StringAnalysisContext(this, null, stringApiModels);
+    }
+
+    public String lookUp(JFieldRef fRef) {
+        FieldSignature field = fRef.getFieldSignature();
+        Map<FieldSignature, String> constants = constantsOf(field.getDeclClassType());
+        return constants.getOrDefault(field, StringFoldingVisitor.TOP);
+    }
+
+    private Map<FieldSignature, String> constantsOf(ClassType classType) {
+        Map<FieldSignature, String> constants = constantsByClass.get(classType);
+        if (constants != null) {
+            return constants;
+        }
+        if (!inProgress.get().add(classType)) {
+            return Collections.emptyMap();
+        }
+        try {
+            constants = index(classType);
+        } finally {
+            inProgress.get().remove(classType);
+        }
+        Map<FieldSignature, String> existing = constantsByClass.putIfAbsent(classType, constants);
+        return existing == null ? constants : existing;
+    }
+
+    private Map<FieldSignature, String> index(ClassType classType) {
+        Optional<? extends SootClass<?>> sootClass = view.getClass(classType);
+        Optional<? extends SootMethod> clinit = sootClass.flatMap(sc -> sc.getMethods().stream()
+                .filter(m -> m.getName().equals("<clinit>") && m.hasBody())
+                .findFirst());
+        if (clinit.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Set<FieldSignature> finalFields = sootClass.get().getFields().stream()
+                .filter(f -> f.isStatic() && f.isFinal())
+                .map(SootField::getSignature)
+                .collect(Collectors.toSet());
+        if (finalFields.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        List<Stmt> stmts = clinit.get().getBody().getStmts();
+        boolean straightLine = stmts.stream().noneMatch(s -> s instanceof JIfStmt || s instanceof JSwitchStmt);
+
+        Map<FieldSignature, String> constants = new HashMap<>();
+        LocalEnvironment env = new LocalIndex(clinit.get()).topEnvironment();
+        for (Stmt stmt : stmts) {
+            if (!(stmt instanceof JAssignStmt<?, ?> assign)) {
+                if (straightLine) {
+                    env = fold(stmt, env);
+                }
+                continue;
+            }
+
+            Value left = assign.getLeftOp();
+            Value right = assign.getRightOp();
+            if (left instanceof JStaticFieldRef fieldRef && finalFields.contains(fieldRef.getFieldSignature())) {
+                String value = StringFoldingVisitor.TOP;
+                if (right instanceof StringConstant constant) {
+                    value = constant.getValue();
+                } else if (straightLine && right instanceof Local local && env.get(local) != null) {
+                    value = env.get(local);
+                }
+                // assigned more than once
+                constants.merge(fieldRef.getFieldSignature(), value, (a, b) -> StringFoldingVisitor.TOP);
+            } else if (straightLine) {
+                if (left instanceof Local local && right instanceof JStaticFieldRef fieldRef
+                        && fieldRef.getFieldSignature().getDeclClassType().equals(classType)) {
+                    // a field of the class being indexed: use what we have folded so far
+                    env = env.with(local, constants.getOrDefault(fieldRef.getFieldSignature(),
+                            StringFoldingVisitor.TOP));
+                } else {
+                    env = fold(stmt, env);
+                }
+            }
+        }
+        return constants;
+    }
+
+    private LocalEnvironment fold(Stmt stmt, LocalEnvironment env) {
+        StringFoldingVisitor visitor = new StringFoldingVisitor(env, context);
+        stmt.accept(visitor);
+        LocalEnvironment out = visitor.getSetOut();
+        // the visitor leaves the result of a call it has no model for as it was
+        if (stmt instanceof JAssignStmt<?, ?> assign && assign.getLeftOp() instanceof Local local
+                && assign.getRightOp() instanceof AbstractInvokeExpr invokeExpr
+                && !context.getStringApiModels().isModelled(invokeExpr)) {
+            out = out.with(local, StringFoldingVisitor.TOP);
+        }
+        return out;
+    }
+
+    /* Number of classes indexed so far. */
+    public int size() {
+        return constantsByClass.size();
+    }
+}
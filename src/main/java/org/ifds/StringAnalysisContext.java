@@ -0,0 +1,53 @@
+package org.ifds;
+
+import sootup.core.jimple.common.expr.AbstractInvokeExpr;
+import sootup.core.model.SootMethod;
+
+/**
+ * Per-run services shared by the analysis problems and {@link StringFoldingVisitor}: static field
+ * constants, the widening policy, the string-API models and the analysis scope.
+ */
+public class StringAnalysisContext {
+
+    private final StaticFieldConstantTable fieldConstants;
+    private final WideningPolicy widening;
+    private final StringApiModels stringApiModels;
+    private final AnalysisScope scope;
+
+    public StringAnalysisContext(StaticFieldConstantTable fieldConstants, WideningPolicy widening,
+                                 StringApiModels stringApiModels) {
+        this(fieldConstants, widening, stringApiModels, AnalysisScope.everything());
+    }
+
+    public StringAnalysisContext(StaticFieldConstantTable fieldConstants, WideningPolicy widening,
+                                 StringApiModels stringApiModels, AnalysisScope scope) {
+        this.fieldConstants = fieldConstants;
+        this.widening = widening;
+        this.stringApiModels = stringApiModels;
+        this.scope = scope;
+    }
+
+    /* null if static fields are not resolved */
+    public StaticFieldConstantTable getFieldConstants() {
+        return fieldConstants;
+    }
+
+    /* null if values are never widened */
+    public WideningPolicy getWidening() {
+        return widening;
+    }
+
+    public StringApiModels getStringApiModels() {
+        return stringApiModels;
+    }
+
+    public AnalysisScope getScope() {
+        return scope;
+    }
+
+    /* Whether the call is analyzed by descending into the callee, rather than by the call-to-return
+       flow alone: it is not modelled, and the callee is application code with a body. */
+    public boolean descendsInto(AbstractInvokeExpr call, SootMethod callee) {
+        return !stringApiModels.isModelled(call) && callee.hasBody() && !scope.isLibrary(callee);
+    }
+}
@@ -0,0 +1,17 @@
+package org.ifds;
+
+import sootup.core.jimple.common.expr.AbstractInvokeExpr;
+
+/**
+ * Describes the string produced by a call to a library method, so the analysis doesn't have to
+ * descend into its body. See {@link StringApiModels} for the models that ship by default.
+ *
+ * The result is assigned to the local the call is assigned to. Models registered as mutators
+ * also assign it to the receiver when the result is discarded (e.g. StringBuilder.append,
+ * StringBuilder.<init>).
+ */
+@FunctionalInterface
+public interface StringApiModel {
+
+    StringParts apply(AbstractInvokeExpr call);
+}
@@ -0,0 +1,236 @@
+package org.ifds;
+
+import sootup.core.jimple.basic.Immediate;
+import sootup.core.jimple.common.constant.StringConstant;
+import sootup.core.jimple.common.expr.AbstractInstanceInvokeExpr;
+import sootup.core.jimple.common.expr.AbstractInvokeExpr;
+import sootup.core.jimple.common.expr.JDynamicInvokeExpr;
+import sootup.core.signatures.MethodSignature;
+import sootup.core.types.Type;
+import sootup.java.core.JavaIdentifierFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table of {@link StringApiModel}s keyed by method signature. Dispatching a call is a single hash
+ * lookup on its signature, or on its bootstrap method for invokedynamic. New models can be
+ * registered without touching {@link StringFoldingVisitor}.
+ *
+ * The defaults are the JDK summaries in jdk-string-summaries.txt, covering StringBuilder/StringBuffer,
+ * String, the boxed toString methods and Objects, plus string concatenation through
+ * StringConcatFactory, which is what javac emits for "+" since Java 9 and is modelled in code.
+ *
+ * A summary file has one {@link StringEffect} per line: {@code [mutator] <signature> = <template>}.
+ * Blank lines and lines starting with # are ignored.
+ */
+public class StringApiModels {
+
+    private static final String STRING = "java.lang.String";
+    private static final String OBJECT = "java.lang.Object";
+    private static final String CONCAT_FACTORY = "java.lang.invoke.StringConcatFactory";
+    private static final String JDK_SUMMARIES = "jdk-string-summaries.txt";
+    private static final String MUTATOR = "mutator ";
+    private static final char RECIPE_ARG = '\u0001';
+    private static final char RECIPE_CONSTANT = '\u0002';
+
+    private static final StringApiModels DEFAULTS = defaults();
+
+    private final Map<MethodSignature, StringApiModel> models = new ConcurrentHashMap<>();
+    /* models whose result is also the new value of the receiver, e.g. StringBuilder.append */
+    private final Set<MethodSignature> mutators = ConcurrentHashMap.newKeySet();
+
+    /* A fresh table with the default models, which callers may extend. */
+    public static StringApiModels defaults() {
+        StringApiModels table = new StringApiModels();
+        try (InputStream in = StringApiModels.class.getResourceAsStream(JDK_SUMMARIES)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing resource " + JDK_SUMMARIES);
+            }
+            table.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + JDK_SUMMARIES, e);
+        }
+
+        List<String> bootstrapParams = List.of("java.lang.invoke.MethodHandles$Lookup", STRING,
+                "java.lang.invoke.MethodType");
+        table.register(CONCAT_FACTORY, "makeConcat", "java.lang.invoke.CallSite", bootstrapParams,
+                StringApiModels::allArguments);
+        table.register(CONCAT_FACTORY, "makeConcatWithConstants", "java.lang.invoke.CallSite",
+                List.of(bootstrapParams.get(0), bootstrapParams.get(1), bootstrapParams.get(2), STRING,
+                        OBJECT + "[]"),
+                StringApiModels::concatWithConstants);
+        return table;
+    }
+
+    /* The shared default table, used when an analysis does not configure its own. Don't register on it. */
+    static StringApiModels shared() {
+        return DEFAULTS;
+    }
+
+    public void register(MethodSignature signature, StringApiModel model) {
+        models.put(signature, model);
+    }
+
+    public void register(String declaringClass, String name, String returnType, List<String> parameterTypes,
+                         StringApiModel model) {
+        register(JavaIdentifierFactory.getInstance().getMethodSignature(name, declaringClass, returnType,
+                parameterTypes), model);
+    }
+
+    /* Registers a model of an instance method that also updates its receiver to the result. */
+    public void registerMutator(String declaringClass, String name, String returnType, List<String> parameterTypes,
+                                StringApiModel model) {
+        MethodSignature signature = JavaIdentifierFactory.getInstance().getMethodSignature(name, declaringClass,
+                returnType, parameterTypes);
+        register(signature, model);
+        mutators.add(signature);
+    }
+
+    /* The model of the call, or null if the call is not modelled. */
+    public StringApiModel lookup(AbstractInvokeExpr call) {
+        MethodSignature key = call instanceof JDynamicInvokeExpr dynamic
+                ? dynamic.getBootstrapMethodSignature()
+                : call.getMethodSignature();
+        return models.get(key);
+    }
+
+    public boolean isModelled(AbstractInvokeExpr call) {
+        return lookup(call) != null;
+    }
+
+    public boolean updatesReceiver(AbstractInvokeExpr call) {
+        return call instanceof AbstractInstanceInvokeExpr && mutators.contains(call.getMethodSignature());
+    }
+
+    /* Registers the effects listed in a summary file, replacing models of the same methods. */
+    public void load(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        int number = 0;
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            number++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            boolean mutator = line.startsWith(MUTATOR);
+            if (mutator) {
+                line = line.substring(MUTATOR.length()).strip();
+            }
+            int end = line.indexOf('>');
+            int equals = line.indexOf('=', end + 1);
+            if (!line.startsWith("<") || end < 0 || equals < 0) {
+                throw new IOException("Malformed summary on line " + number + ": " + line);
+            }
+            MethodSignature signature;
+            StringEffect effect;
+            try {
+                signature = parseSignature(line.substring(1, end));
+                effect = StringEffect.parse(line.substring(equals + 1).strip());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Malformed summary on line " + number + ": " + e.getMessage(), e);
+            }
+            register(signature, effect);
+            if (mutator) {
+                mutators.add(signature);
+            } else {
+                mutators.remove(signature);
+            }
+        }
+    }
+
+    /* Writes the effects of this table as a summary file, models given as code are left out. */
+    public void write(Writer writer) throws IOException {
+        Map<String, String> lines = new TreeMap<>();
+        models.forEach((signature, model) -> {
+            if (model instanceof StringEffect effect) {
+                lines.put(signature.toString(), (mutators.contains(signature) ? MUTATOR : "") + signature
+                        + " = " + effect);
+            }
+        });
+        for (String line : lines.values()) {
+            writer.write(line);
+            writer.write(System.lineSeparator());
+        }
+        writer.flush();
+    }
+
+    public int size() {
+        return models.size();
+    }
+
+    /* Parses "declaringClass: returnType name(parameterType,...)" as printed by MethodSignature. */
+    private static MethodSignature parseSignature(String signature) {
+        int colon = signature.indexOf(':');
+        int open = signature.indexOf('(');
+        int close = signature.lastIndexOf(')');
+        if (colon < 0 || open < colon || close < open) {
+            throw new IllegalArgumentException("Bad method signature <" + signature + ">");
+        }
+        String[] returnAndName = signature.substring(colon + 1, open).strip().split(" ");
+        if (returnAndName.length != 2) {
+            throw new IllegalArgumentException("Bad method signature <" + signature + ">");
+        }
+        String params = signature.substring(open + 1, close).strip();
+        List<String> parameterTypes = params.isEmpty()
+                ? List.of()
+                : Arrays.stream(params.split(",")).map(String::strip).toList();
+        return JavaIdentifierFactory.getInstance().getMethodSignature(returnAndName[1],
+                signature.substring(0, colon).strip(), returnAndName[0], parameterTypes);
+    }
+
+    private static StringParts allArguments(AbstractInvokeExpr call) {
+        List<Type> types = call.getMethodSignature().getParameterTypes();
+        StringParts.Builder parts = StringParts.builder();
+        for (int i = 0; i < call.getArgs().size(); i++) {
+            parts.value(call.getArg(i), types.get(i));
+        }
+        return parts.build();
+    }
+
+    /* The recipe marks each dynamic argument with \1 and each bootstrap constant with \2. */
+    private static StringParts concatWithConstants(AbstractInvokeExpr call) {
+        List<Immediate> bootstrapArgs = ((JDynamicInvokeExpr) call).getBootstrapArgs();
+        if (bootstrapArgs.isEmpty() || !(bootstrapArgs.get(0) instanceof StringConstant recipe)) {
+            return StringParts.top();
+        }
+
+        List<Type> types = call.getMethodSignature().getParameterTypes();
+        StringParts.Builder parts = StringParts.builder();
+        int arg = 0;
+        int constant = 1;
+        StringBuilder literal = new StringBuilder();
+        for (char c : recipe.getValue().toCharArray()) {
+            if (c == RECIPE_ARG) {
+                parts.literal(literal.toString());
+                literal.setLength(0);
+                parts.value(call.getArg(arg), types.get(arg));
+                arg++;
+            } else if (c == RECIPE_CONSTANT) {
+                String value = constant < bootstrapArgs.size()
+                        ? StringParts.constantString(bootstrapArgs.get(constant++), null)
+                        : null;
+                if (value == null) {
+                    return StringParts.top();
+                }
+                literal.append(value);
+            } else {
+                literal.append(c);
+            }
+        }
+        parts.literal(literal.toString());
+        return parts.build();
+    }
+}
@@ -0,0 +1,166 @@
+package org.ifds;
+
+import heros.EdgeFunction;
+import heros.edgefunc.AllTop;
+import heros.edgefunc.EdgeIdentity;
+
+import java.util.Objects;
+
+/**
+ * Edge function of the IDE engine. It either ignores its input and yields a constant, or wraps the
+ * input between a prefix and a suffix. Both forms are closed under composition, so a chain of
+ * appends collapses into a single function no matter how long it is:
+ *
+ *   x = "a"          constant("a")
+ *   y = x.concat(s)  concat("", s)
+ *   z = y            identity, i.e. concat("", "")
+ *
+ * Joining two different functions yields constant(TOP). Composition respects the length bound of
+ * the {@link WideningPolicy} the function was created with.
+ */
+public final class StringEdgeFunction implements EdgeFunction<String> {
+
+    private static final StringEdgeFunction IDENTITY = new StringEdgeFunction(null, "", "", null);
+    private static final StringEdgeFunction TOP = new StringEdgeFunction(StringLattice.TOP, null, null, null);
+
+    private final String constant;
+    private final String prefix;
+    private final String suffix;
+    private final WideningPolicy widening;
+
+    private StringEdgeFunction(String constant, String prefix, String suffix, WideningPolicy widening) {
+        this.constant = constant;
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.widening = widening;
+    }
+
+    public static StringEdgeFunction constant(String value) {
+        return constant(value, null);
+    }
+
+    public static StringEdgeFunction constant(String value, WideningPolicy widening) {
+        if (widening != null) {
+            value = widening.widen(null, value);
+        }
+        return StringLattice.isTop(value)
+                ? TOP
+                : new StringEdgeFunction(StringLattice.canonical(value), null, null, widening);
+    }
+
+    public static StringEdgeFunction concat(String prefix, String suffix) {
+        return concat(prefix, suffix, null);
+    }
+
+    public static StringEdgeFunction concat(String prefix, String suffix, WideningPolicy widening) {
+        if (StringLattice.isTop(prefix) || StringLattice.isTop(suffix)) {
+            return TOP;
+        }
+        if (prefix.isEmpty() && suffix.isEmpty()) {
+            return IDENTITY;
+        }
+        if (widening != null && !widening.allowsLength(prefix.length() + suffix.length())) {
+            widening.widened(null, prefix + suffix);
+            return TOP;
+        }
+        return new StringEdgeFunction(null, StringLattice.canonical(prefix), StringLattice.canonical(suffix),
+                widening);
+    }
+
+    public static StringEdgeFunction identity() {
+        return IDENTITY;
+    }
+
+    public static StringEdgeFunction top() {
+        return TOP;
+    }
+
+    public boolean isConstant() {
+        return constant != null;
+    }
+
+    /* null unless isConstant */
+    public String getConstant() {
+        return constant;
+    }
+
+    /* null if isConstant */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /* null if isConstant */
+    public String getSuffix() {
+        return suffix;
+    }
+
+    @Override
+    public String computeTarget(String source) {
+        if (isConstant()) {
+            return constant;
+        }
+        if (StringLattice.isBottom(source) || StringLattice.isTop(source)) {
+            return source;
+        }
+        return StringLattice.canonical(prefix + source + suffix);
+    }
+
+    @Override
+    public EdgeFunction<String> composeWith(EdgeFunction<String> secondFunction) {
+        if (secondFunction instanceof EdgeIdentity) {
+            return this;
+        }
+        if (secondFunction instanceof AllTop) {
+            return secondFunction;
+        }
+        if (!(secondFunction instanceof StringEdgeFunction second)) {
+            throw new IllegalStateException("Unexpected edge function: " + secondFunction);
+        }
+        if (second.isConstant()) {
+            return second;
+        }
+        WideningPolicy policy = widening != null ? widening : second.widening;
+        if (isConstant()) {
+            return constant(second.computeTarget(constant), policy);
+        }
+        return concat(second.prefix + prefix, suffix + second.suffix, policy);
+    }
+
+    @Override
+    public EdgeFunction<String> joinWith(EdgeFunction<String> otherFunction) {
+        if (otherFunction instanceof AllTop) {
+            return this;
+        }
+        if (otherFunction instanceof EdgeIdentity) {
+            return this == IDENTITY ? this : TOP;
+        }
+        return equalTo(otherFunction) ? this : TOP;
+    }
+
+    @Override
+    public boolean equalTo(EdgeFunction<String> other) {
+        return equals(other);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StringEdgeFunction other)) {
+            return false;
+        }
+        return Objects.equals(constant, other.constant) && Objects.equals(prefix, other.prefix)
+                && Objects.equals(suffix, other.suffix);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(constant, prefix, suffix);
+    }
+
+    @Override
+    public String toString() {
+        return isConstant() ? "const(" + constant + ")" : "concat(" + prefix + ", _, " + suffix + ")";
+    }
+}
@@ -0,0 +1,124 @@
+package org.ifds;
+
+import sootup.core.jimple.common.expr.AbstractInstanceInvokeExpr;
+import sootup.core.jimple.common.expr.AbstractInvokeExpr;
+import sootup.core.types.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link StringApiModel} given as data rather than code: the result is the concatenation of the
+ * receiver, arguments and literals listed in its template, or TOP. Unlike arbitrary models, effects
+ * can be written to and read back from a summary file, see {@link StringApiModels#load}.
+ *
+ * A template is a space separated list of tokens: {@code this}, {@code arg<N>}, a quoted literal,
+ * or a single {@code *} for TOP. An empty template is the empty string.
+ */
+public final class StringEffect implements StringApiModel {
+
+    private static final StringEffect TOP = new StringEffect(List.of(), true);
+    /* marks the receiver in the template, arguments are their Integer index */
+    private static final Object RECEIVER = new Object();
+
+    private final List<Object> template;
+    private final boolean top;
+
+    private StringEffect(List<Object> template, boolean top) {
+        this.template = template;
+        this.top = top;
+    }
+
+    public static StringEffect top() {
+        return TOP;
+    }
+
+    public static StringEffect parse(String template) {
+        List<Object> parts = new ArrayList<>();
+        int i = 0;
+        while (i < template.length()) {
+            char c = template.charAt(i);
+            if (c == ' ') {
+                i++;
+            } else if (c == '"') {
+                StringBuilder literal = new StringBuilder();
+                for (i++; i < template.length() && template.charAt(i) != '"'; i++) {
+                    if (template.charAt(i) == '\\' && i + 1 < template.length()) {
+                        i++;
+                    }
+                    literal.append(template.charAt(i));
+                }
+                if (i == template.length()) {
+                    throw new IllegalArgumentException("Unterminated literal in " + template);
+                }
+                parts.add(literal.toString());
+                i++;
+            } else {
+                int end = template.indexOf(' ', i);
+                String token = template.substring(i, end < 0 ? template.length() : end);
+                if (token.equals("*")) {
+                    return TOP;
+                } else if (token.equals("this")) {
+                    parts.add(RECEIVER);
+                } else if (token.startsWith("arg")) {
+                    try {
+                        parts.add(Integer.parseInt(token.substring(3)));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Bad argument token " + token + " in " + template);
+                    }
+                } else {
+                    throw new IllegalArgumentException("Unknown token " + token + " in " + template);
+                }
+                i += token.length();
+            }
+        }
+        return new StringEffect(List.copyOf(parts), false);
+    }
+
+    @Override
+    public StringParts apply(AbstractInvokeExpr call) {
+        if (top) {
+            return StringParts.top();
+        }
+        List<Type> types = call.getMethodSignature().getParameterTypes();
+        StringParts.Builder parts = StringParts.builder();
+        for (Object part : template) {
+            if (part == RECEIVER) {
+                if (!(call instanceof AbstractInstanceInvokeExpr instanceCall)) {
+                    return StringParts.top();
+                }
+                parts.value(instanceCall.getBase(), null);
+            } else if (part instanceof Integer index) {
+                if (index >= call.getArgs().size()) {
+                    return StringParts.top();
+                }
+                parts.value(call.getArg(index), types.get(index));
+            } else {
+                parts.literal((String) part);
+            }
+        }
+        return parts.build();
+    }
+
+    /* The template this effect was parsed from, up to spacing. */
+    @Override
+    public String toString() {
+        if (top) {
+            return "*";
+        }
+        StringBuilder out = new StringBuilder();
+        for (Object part : template) {
+            if (!out.isEmpty()) {
+                out.append(' ');
+            }
+            if (part == RECEIVER) {
+                out.append("this");
+            } else if (part instanceof Integer index) {
+                out.append("arg").append(index);
+            } else {
+                out.append('"').append(((String) part).replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+            }
+        }
+        return out.toString();
+    }
+}
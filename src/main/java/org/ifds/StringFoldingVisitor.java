@@ -12,40 +12,97 @@ import sootup.core.jimple.common.ref.JInstanceFieldRef;
 import sootup.core.jimple.common.stmt.*;
 import sootup.core.jimple.javabytecode.stmt.*;
 import sootup.core.jimple.visitor.StmtVisitor;
-import sootup.core.model.SootMethod;
-import sootup.core.signatures.MethodSignature;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 public class StringFoldingVisitor implements StmtVisitor {
 
-    private static final String TOP = "*";
-    private static final String SB_APPEND = "<java.lang.StringBuilder: java.lang.StringBuilder append(java.lang.String)>";
-    private static final String SB_TO_STRING = "<java.lang.StringBuilder: java.lang.String toString()>";
-    private static final String SB_INIT_PLAIN = "<java.lang.StringBuilder: void <init>()>";
-    private static final String SB_INIT_STR = "<java.lang.StringBuilder: void <init>(java.lang.String)>";
-    private static final String STRING_CONCAT = "<java.lang.String: java.lang.String concat(java.lang.String)>";
+    static final String TOP = "*";
 
-    private Map<Local, String> setIn;
-    private Map<Local, String> setOut;
+    private LocalEnvironment setIn;
+    private LocalEnvironment setOut;
 
-    private SootMethod clinit;
+    /* Per-local mode: a single incoming fact and the facts generated from it. */
+    private LocalStringFact factIn;
+    private Set<LocalStringFact> factsOut;
+    private boolean readFactIn;
+    private boolean readUnknown;
 
-    public StringFoldingVisitor(Map<Local, String> setIn) {
+    private StaticFieldConstantTable fieldConstants;
+    private WideningPolicy widening;
+    private StringApiModels stringApiModels = StringApiModels.shared();
+    private Stmt visiting;
+
+    public StringFoldingVisitor(LocalEnvironment setIn) {
         this.setIn = setIn;
-        this.setOut = new HashMap<>();
+        this.setOut = setIn;
     }
 
-    public StringFoldingVisitor(Map<Local, String> setIn, SootMethod clinit) {
+    public StringFoldingVisitor(LocalEnvironment setIn, StringAnalysisContext context) {
         this(setIn);
-        this.clinit = clinit;
+        useContext(context);
+    }
+
+    public StringFoldingVisitor(LocalStringFact factIn) {
+        this.factIn = factIn;
+        this.factsOut = new LinkedHashSet<>();
     }
 
-    public Map<Local, String> getSetOut() {
+    public StringFoldingVisitor(LocalStringFact factIn, StringAnalysisContext context) {
+        this(factIn);
+        useContext(context);
+    }
+
+    private void useContext(StringAnalysisContext context) {
+        this.fieldConstants = context.getFieldConstants();
+        this.widening = context.getWidening();
+        this.stringApiModels = context.getStringApiModels();
+    }
+
+    public LocalEnvironment getSetOut() {
         return setOut;
     }
 
+    /* null in environment mode */
+    public Set<LocalStringFact> getFactsOut() {
+        return factsOut == null ? null : LocalStringFact.compact(factsOut);
+    }
+
+    private boolean isPerLocal() {
+        return factsOut != null;
+    }
+
+    private String valueOf(Local l) {
+        if (!isPerLocal()) {
+            return setIn.get(l);
+        }
+        if (!factIn.isZero() && factIn.getLocal().equals(l)) {
+            readFactIn = true;
+            return factIn.getValue();
+        }
+        // the value of any other local is carried by another fact, so we can't see it from here
+        readUnknown = true;
+        return TOP;
+    }
+
+    private void assign(Local l, String value) {
+        if (widening != null) {
+            value = widening.widen(visiting, value);
+        }
+        if (!isPerLocal()) {
+            setOut = setOut.with(l, StringLattice.canonical(value));
+            return;
+        }
+        if (!factIn.isZero() && factIn.getLocal().equals(l)) {
+            factsOut.remove(factIn);
+        }
+        // generate from the fact we read, or from zero when the value does not depend on any local
+        if (readFactIn || (factIn.isZero() && !readUnknown)) {
+            factsOut.add(LocalStringFact.of(l, value));
+        }
+    }
+
     @Override
     public void caseBreakpointStmt(JBreakpointStmt stmt) {
         defaultCaseStmt(stmt);
@@ -55,55 +112,33 @@ public class StringFoldingVisitor implements StmtVisitor {
     public void caseInvokeStmt(JInvokeStmt stmt) {
         defaultCaseStmt(stmt);
 
-        if (AbstractInstanceInvokeExpr.class.isAssignableFrom(stmt.getInvokeExpr().getClass())) {
-            AbstractInstanceInvokeExpr iExpr = (AbstractInstanceInvokeExpr) stmt.getInvokeExpr();
-            // currently, only support for: append, toString and init for StringBuilder.
-            stringBuilderOrStringJavaLang(iExpr, iExpr.getBase());
-
+        AbstractInvokeExpr iExpr = stmt.getInvokeExpr();
+        if (stringApiModels.updatesReceiver(iExpr)) {
+            // the result is discarded, only calls like append and <init> change the receiver.
+            stringApiCall(iExpr, ((AbstractInstanceInvokeExpr) iExpr).getBase());
         }
     }
 
-    private boolean stringBuilderOrStringJavaLang(AbstractInvokeExpr iExpr, Local toReassign) {
-
-        MethodSignature iMethod = iExpr.getMethodSignature();
-        Local lBase = null;
-        if (iExpr instanceof AbstractInstanceInvokeExpr exp) {
-            lBase = exp.getBase();
-        }
-        if (iMethod.toString().equals(SB_APPEND) || iMethod.getName().equals(STRING_CONCAT)) {
-            Value arg = iExpr.getArg(0);
-            String toAppendStr = stringBuilderParamValue(arg);
-            if (lBase != null) {
-                setOut.put(toReassign, concat(setIn.get(lBase), toAppendStr));
-            } else {
-                setOut.put(toReassign, concat(setIn.get(toReassign), toAppendStr));
-            }
-            return true;
-        } else if (iMethod.toString().equals(SB_TO_STRING)) {
-            setOut.put(toReassign, setIn.get(lBase));
-            return true;
-        } else if (iMethod.toString().equals(SB_INIT_PLAIN)) {
-            setOut.put(toReassign, "");
-            return true;
-        } else if (iMethod.toString().equals(SB_INIT_STR)) {
-            setOut.put(toReassign, stringBuilderParamValue(iExpr.getArg(0)));
+    private void stringApiCall(AbstractInvokeExpr iExpr, Local toReassign) {
+        StringApiModel model = stringApiModels.lookup(iExpr);
+        if (model != null) {
+            assign(toReassign, evaluate(model.apply(iExpr)));
         }
-        return false;
-
     }
 
-    private String stringBuilderParamValue(Value arg) {
-        String toAppendStr = TOP;
-
-        if (StringConstant.class.isAssignableFrom(arg.getClass())) {
-            toAppendStr = ((StringConstant) arg).getValue();
-        } else if (Local.class.isAssignableFrom(arg.getClass())) {
-            toAppendStr = setIn.get(arg);
+    private String evaluate(StringParts parts) {
+        if (parts.isTop()) {
+            return TOP;
         }
-
-        return toAppendStr;
-
+        String result = "";
+        // look up every local, even once the result is TOP, so per-local mode knows what was read
+        for (Object part : parts.getParts()) {
+            String value = part instanceof Local local ? valueOf(local) : (String) part;
+            result = concat(result, value == null ? TOP : value);
+        }
+        return result;
     }
+
     private String concat(String s1, String s2) {
         if (s1.equals(TOP) || s2.equals(TOP)) {
             return TOP;
@@ -112,7 +147,6 @@ public class StringFoldingVisitor implements StmtVisitor {
         }
     }
 
-
     @Override
     public void caseAssignStmt(JAssignStmt<?, ?> stmt) {
         defaultCaseStmt(stmt);
@@ -122,22 +156,22 @@ public class StringFoldingVisitor implements StmtVisitor {
             Local lLocal = (Local) left;
             if (AbstractInvokeExpr.class.isAssignableFrom(right.getClass())) {
                 AbstractInvokeExpr iExpr = (AbstractInvokeExpr) right;
-                stringBuilderOrStringJavaLang(iExpr, lLocal);
+                stringApiCall(iExpr, lLocal);
             } else if (Local.class.isAssignableFrom(right.getClass())) {
                 Local rLocal = (Local) right;
                 // we simply update the value of left with whatever there was in right.
-                setOut.put(lLocal, setIn.get(rLocal));
+                assign(lLocal, valueOf(rLocal));
             } else if (StringConstant.class.isAssignableFrom(right.getClass())) {
                 // this time the new value of lLocal is the constant string
-                setOut.put(lLocal, ((StringConstant) right).getValue());
+                assign(lLocal, ((StringConstant) right).getValue());
             } else if (JNewExpr.class.isAssignableFrom(right.getClass())) {
                 JNewExpr newExpr = (JNewExpr) right;
                 if (newExpr.getType().toString().equals("java.lang.StringBuilder")) {
-                    setOut.putAll(setIn);
+                    defaultCaseStmt(stmt);
                 }
             } else if (JInstanceFieldRef.class.isAssignableFrom(right.getClass())) {
 
-                setOut.put(lLocal, TOP);
+                assign(lLocal, TOP);
             } else if (JFieldRef.class.isAssignableFrom(right.getClass())) {
 
                 String str = "";
@@ -149,12 +183,12 @@ public class StringFoldingVisitor implements StmtVisitor {
                     JFieldRef fRef = (JFieldRef) right;
                     str = lookUpFieldRef(fRef);
                 }
-                setOut.put(lLocal, str);
+                assign(lLocal, str);
 
             } else {
                 // As we don't support any other case we assign TOP
 
-                setOut.put(lLocal, TOP);
+                assign(lLocal, TOP);
             }
         } else {
             // If left is not a local, we don't care.
@@ -162,36 +196,17 @@ public class StringFoldingVisitor implements StmtVisitor {
     }
 
     private String lookUpFieldRef(JFieldRef fRef) {
-
-        for (Stmt u : clinit.getBody().getStmts()) {
-            if (JAssignStmt.class.isAssignableFrom(u.getClass())) {
-                JAssignStmt aStmt = (JAssignStmt) u;
-                Value left = aStmt.getLeftOp();
-                Value right = aStmt.getRightOp();
-
-                if (JFieldRef.class.isAssignableFrom(left.getClass())) {
-                    JFieldRef aFieldRef = (JFieldRef) left;
-                    // If the static field is the one that we are looking for...
-                    if (aFieldRef.getFieldSignature().equals(fRef.getFieldSignature())) {
-                        // we then retrieve its constant value if it is a string!
-                        if (StringConstant.class.isAssignableFrom(right.getClass())) {
-                            StringConstant vStr = (StringConstant) right;
-                            return vStr.getValue();
-                        }
-
-                        /* TODO, if we want to do interprocedural analysis on a field assignment i.e.
-                            static {
-                                staticStr = foo("Sonia").
-                            }
-                            We need to set <clinit> as the entry point and reformulate the IFDS problem
-                            to propagate field values as opposed to locals.
-                         */
-                    }
-                }
-            }
+        if (fieldConstants == null) {
+            return TOP;
         }
-
-        return TOP;
+        /* TODO, if we want to do interprocedural analysis on a field assignment i.e.
+            static {
+                staticStr = foo("Sonia").
+            }
+            We need to set <clinit> as the entry point and reformulate the IFDS problem
+            to propagate field values as opposed to locals.
+         */
+        return fieldConstants.lookUp(fRef);
     }
 
     @Override
@@ -206,7 +221,7 @@ public class StringFoldingVisitor implements StmtVisitor {
 
             if (IdentityRef.class.isAssignableFrom(right.getClass())) {
                 // the local is not a constant and depends on external input
-                setOut.put(lLocal, setIn.get(lLocal));
+                assign(lLocal, valueOf(lLocal));
             }
         }
     }
@@ -263,6 +278,11 @@ public class StringFoldingVisitor implements StmtVisitor {
 
     @Override
     public void defaultCaseStmt(Stmt stmt) {
-        setOut.putAll(setIn);
+        visiting = stmt;
+        if (isPerLocal()) {
+            factsOut.add(factIn);
+        } else {
+            setOut = setIn;
+        }
     }
 }
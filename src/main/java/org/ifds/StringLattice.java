@@ -0,0 +1,66 @@
+package org.ifds;
+
+import heros.JoinLattice;
+
+/**
+ * Value lattice of the IDE engine. A value is either a string constant, TOP ("*", not a constant,
+ * the same marker {@link StringFoldingVisitor} uses) or BOTTOM (no value has reached the local yet).
+ *
+ * Heros calls the neutral element of the join its "top element", so {@link #topElement()} returns
+ * our BOTTOM and {@link #bottomElement()} our TOP.
+ */
+public class StringLattice implements JoinLattice<String> {
+
+    public static final String TOP = StringFoldingVisitor.TOP;
+    /* compared by identity, never a real string value */
+    public static final String BOTTOM = new String("<bottom>");
+
+    private static final StringLattice INSTANCE = new StringLattice();
+    /* folded values, equal strings built along different paths are kept once */
+    private static final InternPool<String> VALUES = new InternPool<>();
+
+    public static StringLattice v() {
+        return INSTANCE;
+    }
+
+    public static boolean isBottom(String value) {
+        return value == BOTTOM;
+    }
+
+    public static boolean isTop(String value) {
+        return TOP.equals(value);
+    }
+
+    /* The pooled instance of a value. TOP is always the TOP constant, BOTTOM is never pooled. */
+    public static String canonical(String value) {
+        if (isBottom(value)) {
+            return value;
+        }
+        return isTop(value) ? TOP : VALUES.intern(value);
+    }
+
+    public static InternPool<String> getValuePool() {
+        return VALUES;
+    }
+
+    @Override
+    public String topElement() {
+        return BOTTOM;
+    }
+
+    @Override
+    public String bottomElement() {
+        return TOP;
+    }
+
+    @Override
+    public String join(String left, String right) {
+        if (isBottom(left)) {
+            return right;
+        }
+        if (isBottom(right) || left.equals(right)) {
+            return left;
+        }
+        return TOP;
+    }
+}
@@ -0,0 +1,124 @@
+package org.ifds;
+
+import sootup.core.jimple.basic.Local;
+import sootup.core.jimple.basic.Value;
+import sootup.core.jimple.common.constant.DoubleConstant;
+import sootup.core.jimple.common.constant.FloatConstant;
+import sootup.core.jimple.common.constant.IntConstant;
+import sootup.core.jimple.common.constant.LongConstant;
+import sootup.core.jimple.common.constant.NullConstant;
+import sootup.core.jimple.common.constant.StringConstant;
+import sootup.core.types.PrimitiveType;
+import sootup.core.types.Type;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The string a modelled call produces, as a concatenation of literals and locals. Constant
+ * operands are converted to their string form right away, so only locals are left for the
+ * analysis to look up. A call whose result cannot be described this way is TOP.
+ */
+public final class StringParts {
+
+    private static final StringParts TOP = new StringParts(Collections.emptyList(), true);
+
+    private final List<Object> parts;
+    private final boolean top;
+
+    private StringParts(List<Object> parts, boolean top) {
+        this.parts = parts;
+        this.top = top;
+    }
+
+    public static StringParts top() {
+        return TOP;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public boolean isTop() {
+        return top;
+    }
+
+    /* Each element is either a literal String or a Local. */
+    public List<Object> getParts() {
+        return parts;
+    }
+
+    public List<Local> getLocals() {
+        List<Local> locals = new ArrayList<>(parts.size());
+        for (Object part : parts) {
+            if (part instanceof Local local && !locals.contains(local)) {
+                locals.add(local);
+            }
+        }
+        return locals;
+    }
+
+    public static final class Builder {
+
+        private final List<Object> parts = new ArrayList<>(4);
+        private boolean top;
+
+        private Builder() {
+        }
+
+        public Builder literal(String literal) {
+            if (!literal.isEmpty()) {
+                parts.add(literal);
+            }
+            return this;
+        }
+
+        /* An operand of the call, converted to a string as if it had the given declared type. A local
+           that can't hold a string, e.g. an int, never has a known value. */
+        public Builder value(Value value, Type type) {
+            if (value instanceof Local local) {
+                if (StringTypes.mayHoldString(local.getType())) {
+                    parts.add(local);
+                } else {
+                    top = true;
+                }
+            } else {
+                String constant = constantString(value, type);
+                if (constant == null) {
+                    top = true;
+                } else {
+                    literal(constant);
+                }
+            }
+            return this;
+        }
+
+        public StringParts build() {
+            return top ? TOP : new StringParts(List.copyOf(parts), false);
+        }
+    }
+
+    /* The string conversion of a constant, or null if we don't know it. */
+    static String constantString(Value value, Type type) {
+        if (value instanceof StringConstant constant) {
+            return constant.getValue();
+        } else if (value instanceof NullConstant) {
+            return "null";
+        } else if (value instanceof IntConstant constant) {
+            if (PrimitiveType.getBoolean().equals(type)) {
+                return String.valueOf(constant.getValue() != 0);
+            } else if (PrimitiveType.getChar().equals(type)) {
+                return String.valueOf((char) constant.getValue());
+            }
+            return String.valueOf(constant.getValue());
+        } else if (value instanceof LongConstant constant) {
+            return String.valueOf(constant.getValue());
+        } else if (value instanceof FloatConstant constant) {
+            return String.valueOf(constant.getValue());
+        } else if (value instanceof DoubleConstant constant) {
+            return String.valueOf(constant.getValue());
+        }
+        return null;
+    }
+}
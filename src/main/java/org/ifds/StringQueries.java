@@ -0,0 +1,228 @@
+package org.ifds;
+
+import heros.InterproceduralCFG;
+import sootup.core.jimple.basic.Local;
+import sootup.core.jimple.basic.Value;
+import sootup.core.jimple.common.expr.AbstractInstanceInvokeExpr;
+import sootup.core.jimple.common.expr.AbstractInvokeExpr;
+import sootup.core.jimple.common.stmt.AbstractDefinitionStmt;
+import sootup.core.jimple.common.stmt.JIdentityStmt;
+import sootup.core.jimple.common.stmt.JInvokeStmt;
+import sootup.core.jimple.common.stmt.JReturnStmt;
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.model.SootMethod;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers "which string does this local hold here" without solving the whole program.
+ *
+ * A query first works backward from the local to the definitions it depends on: copies, the
+ * operands of modelled string API calls, the arguments passed for a parameter at every call site,
+ * and the values returned by the callees of a call. The methods those definitions live in are the
+ * slice of the query. The IDE engine then runs forward from the entry method, but only descends
+ * into the slice and the methods on a call path to it, every other call is treated like a call
+ * into the library.
+ *
+ * Answers and the last forward solve are memoized. A query whose slice was already covered is
+ * answered from that solve, otherwise the covered methods grow by its slice and are solved again.
+ */
+public class StringQueries {
+
+    /* A local at a statement, i.e. one question. */
+    private record Query(Stmt stmt, Local local) {
+    }
+
+    /* A local whose definitions the slice still has to visit. */
+    private record Need(SootMethod method, Local local) {
+    }
+
+    private final SootMethod entryMethod;
+    private final CachedInterproceduralCFG callGraph;
+    private final StringAnalysisContext context;
+    private final Map<SootMethod, Map<Local, List<Stmt>>> definitions = new ConcurrentHashMap<>();
+    private final Map<Query, String> answers = new ConcurrentHashMap<>();
+    private Set<SootMethod> solvedMethods = Set.of();
+    private SummaryIDESolver solver;
+    private int solves;
+    private int answeredFromSolve;
+
+    /* callGraph must contain every method reachable from the entry method. */
+    public StringQueries(SootMethod entryMethod, CachedInterproceduralCFG callGraph, StringAnalysisContext context) {
+        this.entryMethod = entryMethod;
+        this.callGraph = callGraph;
+        this.context = context;
+    }
+
+    /* The value of the local before the statement executes, TOP if it is not known. */
+    public synchronized String valueOf(Stmt stmt, Local local) {
+        Query query = new Query(stmt, local);
+        String answer = answers.get(query);
+        if (answer != null) {
+            return answer;
+        }
+        SootMethod method = callGraph.getMethodOf(stmt);
+        if (method == null) {
+            throw new IllegalArgumentException("Not reachable from " + entryMethod.getSignature() + ": " + stmt);
+        }
+
+        Set<SootMethod> descended = withCallers(slice(method, local));
+        if (solver == null || !solvedMethods.containsAll(descended)) {
+            descended.addAll(solvedMethods);
+            solve(descended);
+        } else {
+            answeredFromSolve++;
+        }
+        String value = solver.resultsAt(stmt).get(local);
+        answer = value == null || StringLattice.isBottom(value) ? StringLattice.TOP : value;
+        answers.put(query, answer);
+        return answer;
+    }
+
+    /* Methods the value of the local in the method may depend on. */
+    Set<SootMethod> slice(SootMethod method, Local local) {
+        Set<SootMethod> slice = new HashSet<>();
+        Set<Need> seen = new HashSet<>();
+        Deque<Need> worklist = new ArrayDeque<>();
+        Need first = new Need(method, local);
+        seen.add(first);
+        worklist.add(first);
+        while (!worklist.isEmpty()) {
+            Need need = worklist.poll();
+            slice.add(need.method());
+            List<Need> next = new ArrayList<>();
+            for (Stmt def : definitionsOf(need.method()).getOrDefault(need.local(), List.of())) {
+                dependencies(need.method(), need.local(), def, next, slice);
+            }
+            for (Need dependency : next) {
+                if (seen.add(dependency)) {
+                    worklist.add(dependency);
+                }
+            }
+        }
+        return slice;
+    }
+
+    /* Mirrors how IDEAnalysisProblem defines the local at the statement. */
+    private void dependencies(SootMethod method, Local local, Stmt def, List<Need> next, Set<SootMethod> slice) {
+        if (def instanceof JIdentityStmt<?>) {
+            int index = method.getBody().getParameterLocals().indexOf(local);
+            if (index < 0) {
+                return;
+            }
+            for (Stmt callSite : callGraph.getCallersOf(method)) {
+                List<? extends Value> args = callSite.getInvokeExpr().getArgs();
+                if (index < args.size() && args.get(index) instanceof Local arg) {
+                    next.add(new Need(callGraph.getMethodOf(callSite), arg));
+                }
+            }
+        } else if (def.containsInvokeExpr()) {
+            AbstractInvokeExpr call = def.getInvokeExpr();
+            StringApiModel model = context.getStringApiModels().lookup(call);
+            if (model != null) {
+                for (Local part : model.apply(call).getLocals()) {
+                    next.add(new Need(method, part));
+                }
+                return;
+            }
+            for (SootMethod callee : callGraph.getCalleesOfCallAt(def)) {
+                if (!context.descendsInto(call, callee)) {
+                    continue;
+                }
+                // even a callee returning a constant has to be descended into
+                slice.add(callee);
+                for (Stmt stmt : callee.getBody().getStmts()) {
+                    if (stmt instanceof JReturnStmt returnStmt && returnStmt.getOp() instanceof Local returned) {
+                        next.add(new Need(callee, returned));
+                    }
+                }
+            }
+        } else if (def instanceof AbstractDefinitionStmt<?, ?> definition
+                && definition.getRightOp() instanceof Local right) {
+            next.add(new Need(method, right));
+        }
+    }
+
+    /* Statements defining each local of the method, including mutator calls on it. */
+    private Map<Local, List<Stmt>> definitionsOf(SootMethod method) {
+        return definitions.computeIfAbsent(method, m -> {
+            Map<Local, List<Stmt>> defs = new HashMap<>();
+            for (Stmt stmt : m.getBody().getStmts()) {
+                if (stmt instanceof AbstractDefinitionStmt<?, ?> definition
+                        && definition.getLeftOp() instanceof Local left) {
+                    defs.computeIfAbsent(left, k -> new ArrayList<>()).add(stmt);
+                } else if (stmt instanceof JInvokeStmt
+                        && context.getStringApiModels().updatesReceiver(stmt.getInvokeExpr())) {
+                    Local base = ((AbstractInstanceInvokeExpr) stmt.getInvokeExpr()).getBase();
+                    defs.computeIfAbsent(base, k -> new ArrayList<>()).add(stmt);
+                }
+            }
+            return defs;
+        });
+    }
+
+    /* The solver can only reach the slice through the methods that call into it. */
+    private Set<SootMethod> withCallers(Set<SootMethod> slice) {
+        Set<SootMethod> methods = new HashSet<>(slice);
+        Deque<SootMethod> worklist = new ArrayDeque<>(slice);
+        while (!worklist.isEmpty()) {
+            for (Stmt callSite : callGraph.getCallersOf(worklist.poll())) {
+                SootMethod caller = callGraph.getMethodOf(callSite);
+                if (methods.add(caller)) {
+                    worklist.add(caller);
+                }
+            }
+        }
+        methods.add(entryMethod);
+        return methods;
+    }
+
+    private void solve(Set<SootMethod> methods) {
+        Map<Stmt, Collection<SootMethod>> callees = new HashMap<>();
+        callGraph.getCallees().forEach((callSite, targets) -> {
+            if (methods.contains(callGraph.getMethodOf(callSite))) {
+                callees.put(callSite, targets.stream().filter(methods::contains).toList());
+            }
+        });
+        InterproceduralCFG<Stmt, SootMethod> icfg = new CachedInterproceduralCFG(methods, callees);
+        WideningPolicy widening = context.getWidening() == null
+                ? null
+                : new WideningPolicy(context.getWidening().getMaxLength(), context.getWidening().getMaxValuesPerStmt());
+        StringAnalysisContext solveContext = new StringAnalysisContext(context.getFieldConstants(), widening,
+                context.getStringApiModels(), context.getScope());
+        solver = new SummaryIDESolver(new IDEAnalysisProblem(icfg, entryMethod, solveContext));
+        solver.solve();
+        solvedMethods = methods;
+        solves++;
+    }
+
+    /* Methods with a body reachable from the entry method, i.e. the methods a query can ask about. */
+    public Set<SootMethod> getReachableMethods() {
+        return callGraph.getMethods();
+    }
+
+    /* Methods the last forward solve descended into. */
+    public synchronized int getSolvedMethodCount() {
+        return solvedMethods.size();
+    }
+
+    public synchronized int getSolveCount() {
+        return solves;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "queries: " + answers.size() + " answered, " + solves + " solves, " + answeredFromSolve
+                + " answered from an earlier solve, " + solvedMethods.size() + " of " + callGraph.getMethods().size()
+                + " methods solved";
+    }
+}
@@ -0,0 +1,32 @@
+package org.ifds;
+
+import sootup.core.types.ClassType;
+import sootup.core.types.Type;
+import sootup.core.types.UnknownType;
+
+import java.util.Set;
+
+/**
+ * The types of locals that may hold a string or a string under construction. Any other local, e.g.
+ * an int or a List, never has a known string value, so reading it is TOP and its definitions can
+ * be skipped, see {@link SparseInterproceduralCFG}.
+ */
+final class StringTypes {
+
+    /* String, its builders, and the supertypes a String may be stored as */
+    private static final Set<String> STRING_TYPES = Set.of(
+            "java.lang.String", "java.lang.StringBuilder", "java.lang.StringBuffer", "java.lang.CharSequence",
+            "java.lang.Object", "java.lang.Comparable", "java.io.Serializable",
+            "java.lang.constant.Constable", "java.lang.constant.ConstantDesc");
+
+    private StringTypes() {
+    }
+
+    static boolean mayHoldString(Type type) {
+        if (type instanceof ClassType classType) {
+            return STRING_TYPES.contains(classType.getFullyQualifiedName());
+        }
+        // locals are untyped until the type assigner ran, don't drop them
+        return type == null || type instanceof UnknownType;
+    }
+}
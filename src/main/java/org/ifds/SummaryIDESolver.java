@@ -0,0 +1,74 @@
+package org.ifds;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Table;
+import heros.EdgeFunction;
+import heros.IDETabulationProblem;
+import heros.InterproceduralCFG;
+import heros.edgefunc.EdgeIdentity;
+import heros.solver.IDESolver;
+import sootup.core.jimple.basic.Local;
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.model.SootMethod;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * IDE solver that exposes the end summaries it computed, so they can be kept as
+ * {@link MethodSummary}s between runs.
+ */
+public class SummaryIDESolver extends IDESolver<Stmt, Local, SootMethod, String, InterproceduralCFG<Stmt, SootMethod>> {
+
+    public SummaryIDESolver(
+            IDETabulationProblem<Stmt, Local, SootMethod, String, InterproceduralCFG<Stmt, SootMethod>> problem) {
+        super(problem);
+    }
+
+    /* Caches the flow functions with flowFunctionCacheBuilder, null disables caching them. */
+    @SuppressWarnings("rawtypes")
+    public SummaryIDESolver(
+            IDETabulationProblem<Stmt, Local, SootMethod, String, InterproceduralCFG<Stmt, SootMethod>> problem,
+            CacheBuilder flowFunctionCacheBuilder) {
+        super(problem, flowFunctionCacheBuilder, DEFAULT_CACHE_BUILDER);
+    }
+
+    /* Like heros' default, with soft values, but holding at most maxSize flow functions per kind of edge.
+       null for 0, which disables the cache. */
+    @SuppressWarnings("rawtypes")
+    public static CacheBuilder flowFunctionCacheBuilder(int maxSize, int numThreads) {
+        if (maxSize <= 0) {
+            return null;
+        }
+        return CacheBuilder.newBuilder()
+                .concurrencyLevel(Math.max(1, numThreads))
+                .maximumSize(maxSize)
+                .softValues();
+    }
+
+    /* Solves each method as if it were called with a value in every parameter that may hold a string, instead
+       of from the initial seeds, so their end summaries are computed without solving their callers. */
+    public void solveSummaries(Collection<SootMethod> methods) {
+        for (SootMethod method : methods) {
+            for (Stmt startPoint : icfg.getStartPointsOf(method)) {
+                propagate(zeroValue, startPoint, zeroValue, EdgeIdentity.v(), null, false);
+                for (Local parameter : method.getBody().getParameterLocals()) {
+                    if (StringTypes.mayHoldString(parameter.getType())) {
+                        propagate(parameter, startPoint, parameter, EdgeIdentity.v(), null, false);
+                    }
+                }
+            }
+        }
+        awaitCompletionComputeValuesAndShutdown();
+    }
+
+    /* End summaries of the method keyed by the fact it was entered with, empty if it was never entered. */
+    public Map<Local, Table<Stmt, Local, EdgeFunction<String>>> endSummariesOf(SootMethod method) {
+        Map<Local, Table<Stmt, Local, EdgeFunction<String>>> summaries = new HashMap<>();
+        for (Stmt startPoint : icfg.getStartPointsOf(method)) {
+            summaries.putAll(endSummary.row(startPoint));
+        }
+        return summaries;
+    }
+}
@@ -0,0 +1,129 @@
+package org.ifds;
+
+import sootup.core.jimple.common.stmt.Stmt;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounds the string values the analysis may produce. A value goes to TOP once it is longer than
+ * the maximum constant length, or when it is produced at a statement that produces more than the
+ * maximum number of distinct values. Appending inside a loop therefore yields TOP instead of a new,
+ * longer value on every iteration.
+ *
+ * Which values a statement gets to keep must not depend on the order they arrive in, and with a
+ * multi-threaded solver that order varies. So the cap applies to the statement as a whole: once a
+ * statement overflows it, the solve is repeated with that statement saturated, i.e. widening every
+ * value it produces, see {@link #saturateOverflowed()}. The last solve overflows nowhere, so every
+ * other statement kept all of its values and the result only depends on which statements are
+ * saturated. Until then an overflowing statement widens the values past the cap, which keeps the
+ * solve that is going to be repeated bounded.
+ *
+ * One policy belongs to one analysis run; it counts the distinct values it widened at each statement.
+ */
+public class WideningPolicy {
+
+    public static final int DEFAULT_MAX_LENGTH = 1024;
+    public static final int DEFAULT_MAX_VALUES_PER_STMT = 32;
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    /* a value widened at a statement, null for edge functions; the hash keeps long values from being retained */
+    private record Widening(Stmt stmt, int valueHash) {
+    }
+
+    private final int maxLength;
+    private final int maxValuesPerStmt;
+    private final Map<Stmt, Set<String>> valuesPerStmt = new ConcurrentHashMap<>();
+    private final Set<Stmt> saturated = ConcurrentHashMap.newKeySet();
+    private final Set<Stmt> overflowed = ConcurrentHashMap.newKeySet();
+    private final Set<Widening> widenings = ConcurrentHashMap.newKeySet();
+
+    public WideningPolicy() {
+        this(DEFAULT_MAX_LENGTH, DEFAULT_MAX_VALUES_PER_STMT);
+    }
+
+    public WideningPolicy(int maxLength, int maxValuesPerStmt) {
+        if (maxLength < 0 || maxValuesPerStmt < 1) {
+            throw new IllegalArgumentException("Invalid widening bounds: " + maxLength + ", " + maxValuesPerStmt);
+        }
+        this.maxLength = maxLength;
+        this.maxValuesPerStmt = maxValuesPerStmt;
+    }
+
+    public static WideningPolicy unbounded() {
+        return new WideningPolicy(UNBOUNDED, UNBOUNDED);
+    }
+
+    /* Returns value, or TOP if producing it at stmt exceeds a bound. stmt may be null to only check the length. */
+    public String widen(Stmt stmt, String value) {
+        if (value == null || StringLattice.isTop(value) || StringLattice.isBottom(value)) {
+            return value;
+        }
+        if (!allowsLength(value.length())) {
+            return widened(stmt, value);
+        }
+        if (stmt == null || maxValuesPerStmt == UNBOUNDED) {
+            return value;
+        }
+        if (saturated.contains(stmt)) {
+            return widened(stmt, value);
+        }
+        Set<String> seen = valuesPerStmt.computeIfAbsent(stmt, s -> new HashSet<>());
+        synchronized (seen) {
+            if (!seen.contains(value)) {
+                if (seen.size() >= maxValuesPerStmt) {
+                    overflowed.add(stmt);
+                    return widened(stmt, value);
+                }
+                seen.add(value);
+            }
+        }
+        return value;
+    }
+
+    public boolean allowsLength(int length) {
+        return length <= maxLength;
+    }
+
+    /* Records that value was widened, once per statement and value, and returns TOP. */
+    public String widened(Stmt stmt, String value) {
+        widenings.add(new Widening(stmt, value.hashCode()));
+        return StringLattice.TOP;
+    }
+
+    /**
+     * Saturates the statements that overflowed the value cap in the solve that just finished, and
+     * forgets what that solve produced. Returns whether any did, i.e. whether the solve has to be
+     * repeated for a result that does not depend on the order values arrived in.
+     */
+    public boolean saturateOverflowed() {
+        if (overflowed.isEmpty()) {
+            return false;
+        }
+        saturated.addAll(overflowed);
+        overflowed.clear();
+        valuesPerStmt.clear();
+        widenings.clear();
+        return true;
+    }
+
+    /* Distinct values widened at each statement in the last solve. */
+    public long getWideningCount() {
+        return widenings.size();
+    }
+
+    /* Statements that widen every value they produce. */
+    public int getSaturatedCount() {
+        return saturated.size();
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public int getMaxValuesPerStmt() {
+        return maxValuesPerStmt;
+    }
+}
@@ -0,0 +1,69 @@
+package org.ifds;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchAnalysisTest {
+
+    private static final List<String> TARGETS = List.of("First", "Second", "Third", "Missing");
+
+    private static Path classes;
+
+    @BeforeAll
+    static void compile() {
+        classes = TestPrograms.compile("""
+                public class First {
+                    public static void main(String[] args) {
+                        String a = Shared.greet("first");
+                        System.out.println(a);
+                    }
+                }
+                """, """
+                public class Second {
+                    public static void main(String[] args) {
+                        String a = Shared.greet("second").concat("!");
+                        System.out.println(a);
+                    }
+                }
+                """, """
+                public class Third {
+                    public static void main(String[] args) {
+                        String a = "third";
+                        System.out.println(a.concat(a));
+                    }
+                }
+                """, """
+                class Shared {
+                    static String greet(String name) {
+                        return "hello ".concat(name);
+                    }
+                }
+                """);
+    }
+
+    @Test
+    void parallelBatchMatchesSequentialRuns() {
+        IFDSSetUp setUp = new IFDSSetUp();
+        Map<String, AnalysisRun> runs = new HashMap<>();
+        setUp.executeBatch(TARGETS, classes.toString(), 4, run -> runs.put(run.getTargetClassName(), run));
+
+        assertEquals(Set.copyOf(TARGETS), runs.keySet());
+        for (String target : TARGETS.subList(0, 3)) {
+            AnalysisRun run = runs.get(target);
+            assertFalse(run.isFailed(), run::toString);
+            AnalysisRun sequential = TestPrograms.run(setUp.getEngine(), classes, target);
+            assertEquals(TestPrograms.constantsAtEnd(sequential), TestPrograms.constantsAtEnd(run), target);
+        }
+        assertTrue(runs.get("Missing").isFailed());
+    }
+}
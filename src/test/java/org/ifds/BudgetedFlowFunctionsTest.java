@@ -0,0 +1,69 @@
+package org.ifds;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import sootup.core.jimple.basic.Local;
+import sootup.core.jimple.common.stmt.JAssignStmt;
+import sootup.core.jimple.common.stmt.Stmt;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class BudgetedFlowFunctionsTest {
+
+    private static Path classes;
+
+    @BeforeAll
+    static void compile() {
+        classes = TestPrograms.compile("""
+                public class Main {
+                    public static void main(String[] args) {
+                        String a = greet("x");
+                        String b = greet("y");
+                        String c = greet(a);
+                        System.out.println(a);
+                        System.out.println(b);
+                        System.out.println(c);
+                    }
+
+                    static String greet(String name) {
+                        return "hello ".concat(name);
+                    }
+                }
+                """);
+    }
+
+    /* a call the budget cut off has no return flow, its result has to be TOP rather than missing */
+    @ParameterizedTest
+    @EnumSource(IFDSSetUp.Engine.class)
+    @SuppressWarnings("unchecked")
+    void resultOfCallIsTopOnceBudgetIsExhausted(IFDSSetUp.Engine engine) {
+        IFDSSetUp setUp = TestPrograms.setUp(engine, classes, "Main");
+        setUp.setSolveBudget(1, 0);
+        setUp.runAnalysis();
+        AnalysisRun run = setUp.getLastRun();
+        assumeTrue(run.isPartial(), run::toString);
+
+        List<Stmt> stmts = run.getEntryMethod().getBody().getStmts();
+        for (int i = 0; i < stmts.size() - 1; i++) {
+            if (stmts.get(i) instanceof JAssignStmt<?, ?> call && call.containsInvokeExpr()
+                    && call.getInvokeExpr().getMethodSignature().getName().equals("greet")
+                    && call.getLeftOp() instanceof Local result) {
+                for (Object environment : run.getResultsAt(stmts.get(i + 1))) {
+                    assertTrue(((Map<Local, String>) environment).containsKey(result),
+                            () -> "no value for " + result + " after " + call + ": " + environment);
+                }
+            }
+        }
+
+        Set<String> complete = TestPrograms.constantsAtEnd(TestPrograms.run(engine, classes, "Main"));
+        Set<String> partial = TestPrograms.constantsAtEnd(run);
+        assertTrue(complete.containsAll(partial), partial + " is not a subset of " + complete);
+    }
+}
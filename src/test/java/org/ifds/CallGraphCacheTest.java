@@ -0,0 +1,51 @@
+package org.ifds;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CallGraphCacheTest {
+
+    private static Path classes;
+
+    @BeforeAll
+    static void compile() {
+        classes = TestPrograms.compile("""
+                public class Main {
+                    public static void main(String[] args) {
+                        String a = greet("cache");
+                        System.out.println(a);
+                    }
+
+                    static String greet(String name) {
+                        return "hello ".concat(name);
+                    }
+                }
+                """);
+    }
+
+    @Test
+    void warmStartReproducesColdStart(@TempDir Path cacheDirectory) {
+        AnalysisRun cold = run(cacheDirectory);
+        AnalysisRun warm = run(cacheDirectory);
+
+        assertFalse(cold.isIcfgFromCache());
+        assertTrue(warm.isIcfgFromCache());
+        assertEquals(TestPrograms.constantsAtEnd(cold), TestPrograms.constantsAtEnd(warm));
+    }
+
+    /* in a fresh view, as a new process would */
+    private static AnalysisRun run(Path cacheDirectory) {
+        IFDSSetUp setUp = new IFDSSetUp();
+        setUp.setCallGraphCacheDirectory(cacheDirectory);
+        setUp.setupSoot("Main", classes.toString());
+        setUp.runAnalysis();
+        return setUp.getLastRun();
+    }
+}
@@ -0,0 +1,46 @@
+package org.ifds;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CalleeContextCacheTest {
+
+    private static Path classes;
+
+    @BeforeAll
+    static void compile() {
+        classes = TestPrograms.compile("""
+                public class Main {
+                    public static void main(String[] args) {
+                        String a = greet("hello", "x");
+                        String b = greet("hello", "y");
+                        String c = greet("hello", "x");
+                        System.out.println(a + b + c);
+                    }
+
+                    static String greet(String name, String unused) {
+                        return name.concat("!");
+                    }
+                }
+                """);
+    }
+
+    @Test
+    void countsOnlyAnalysesNarrowingAvoided() {
+        AnalysisRun run = TestPrograms.run(IFDSSetUp.Engine.IFDS_ENVIRONMENT, classes, "Main");
+        CalleeContextCache contexts = run.getCalleeContexts();
+        assertNotNull(contexts);
+        assertTrue(TestPrograms.constantsAtEnd(run).contains("hello!"), TestPrograms.constantsAtEnd(run).toString());
+        // greet("hello", "x") and greet("hello", "y") collapse into one context, the second "x" call
+        // would have reused its summary without narrowing
+        assertEquals(1, contexts.getContexts());
+        assertEquals(1, contexts.getAvoided());
+        assertEquals(3, contexts.getNarrowed());
+    }
+}
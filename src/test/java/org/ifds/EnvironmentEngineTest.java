@@ -0,0 +1,44 @@
+package org.ifds;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EnvironmentEngineTest {
+
+    private static Path classes;
+
+    @BeforeAll
+    static void compile() {
+        classes = TestPrograms.compile("""
+                public class Main {
+                    public static void main(String[] args) {
+                        String a = "foo";
+                        String b = suffix(a);
+                        String c = Helper.twice(b);
+                        System.out.println(c);
+                    }
+
+                    static String suffix(String s) {
+                        String t = s.concat("bar");
+                        return t;
+                    }
+                }
+                """, """
+                class Helper {
+                    static String twice(String s) {
+                        return s.concat(s);
+                    }
+                }
+                """);
+    }
+
+    @Test
+    void descendsIntoApplicationMethods() {
+        AnalysisRun run = TestPrograms.run(IFDSSetUp.Engine.IFDS_ENVIRONMENT, classes, "Main");
+        assertTrue(TestPrograms.constantsAtEnd(run).contains("foobarfoobar"), run::toString);
+    }
+}
@@ -0,0 +1,50 @@
+package org.ifds;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EnvironmentIFDSSolverTest {
+
+    private static Path classes;
+
+    @BeforeAll
+    static void compile() {
+        classes = TestPrograms.compile("""
+                public class Main {
+                    public static void main(String[] args) {
+                        String a = wrap("a");
+                        String b = wrap("b");
+                        String c = a.concat(b);
+                        System.out.println(c);
+                    }
+
+                    static String wrap(String tag) {
+                        String mark = mark();
+                        return tag.concat(mark);
+                    }
+
+                    static String mark() {
+                        return "!";
+                    }
+                }
+                """);
+    }
+
+    /* Both calls of wrap reach the call of mark, which is entered in the same context from each. What
+       mark returns must only be rebound in the environment of the wrap it returns into. */
+    @Test
+    void returnsOnlyIntoTheCallersContext() {
+        Set<String> constants = TestPrograms.constantsAtEnd(
+                TestPrograms.run(IFDSSetUp.Engine.IFDS_ENVIRONMENT, classes, "Main"));
+        assertTrue(constants.contains("a!b!"), constants::toString);
+        assertFalse(constants.contains("b!b!"), constants::toString);
+        assertFalse(constants.contains("a!a!"), constants::toString);
+        assertFalse(constants.contains("b!a!"), constants::toString);
+    }
+}
@@ -0,0 +1,144 @@
+package org.ifds;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sootup.core.jimple.common.stmt.Stmt;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MethodSummaryStoreTest {
+
+    private static final String MAIN = """
+            public class Main {
+                public static void main(String[] args) {
+                    String a = Outer.outer("x");
+                    String b = Outer.outer(Leaf.name());
+                    System.out.println(a.concat(b));
+                }
+            }
+            """;
+    private static final String OUTER = """
+            class Outer {
+                static String outer(String s) {
+                    return Middle.middle(s).concat("!");
+                }
+            }
+            """;
+    private static final String MIDDLE = """
+            class Middle {
+                static String middle(String s) {
+                    return Leaf.wrap(s);
+                }
+            }
+            """;
+    private static final String LEAF = """
+            class Leaf {
+                static String wrap(String s) {
+                    return "<".concat(s).concat(">");
+                }
+
+                static String name() {
+                    return "leaf";
+                }
+            }
+            """;
+
+    private static Path original;
+
+    @BeforeAll
+    static void compile() {
+        original = TestPrograms.compile(MAIN, OUTER, MIDDLE, LEAF);
+    }
+
+    @Test
+    void incrementalRunsMatchFullSolve(@TempDir Path directory) {
+        IFDSSetUp setUp = TestPrograms.setUp(IFDSSetUp.Engine.IDE, original, "Main");
+        setUp.runAnalysis();
+        Map<Stmt, Set<?>> expected = TestPrograms.resultsOfEntryMethod(setUp.getLastRun());
+
+        setUp.setMethodSummaryFile(directory.resolve("summaries.bin"));
+        MethodSummaryStore store = setUp.getMethodSummaryStore();
+        setUp.runAnalysis();
+        assertEquals(expected, TestPrograms.resultsOfEntryMethod(setUp.getLastRun()), "first run");
+
+        setUp.runAnalysis();
+        assertEquals(expected, TestPrograms.resultsOfEntryMethod(setUp.getLastRun()), "unchanged");
+        assertFalse(store.getSignatures().isEmpty());
+
+        List<String> signatures = store.getSignatures();
+        signatures.subList(0, signatures.size() / 2).forEach(store::invalidate);
+        setUp.runAnalysis();
+        assertEquals(expected, TestPrograms.resultsOfEntryMethod(setUp.getLastRun()), "invalidated");
+    }
+
+    @Test
+    void changedBodyMatchesFullSolveOfChangedProgram(@TempDir Path directory) {
+        Path summaryFile = directory.resolve("summaries.bin");
+        runWithStore(original, summaryFile);
+
+        Path changed = TestPrograms.compile(MAIN, OUTER, MIDDLE, LEAF.replace("\">\"", "\"/>\""));
+        AnalysisRun incremental = runWithStore(changed, summaryFile);
+        assertEquals(TestPrograms.constantsAtEnd(TestPrograms.run(IFDSSetUp.Engine.IDE, changed, "Main")),
+                TestPrograms.constantsAtEnd(incremental));
+    }
+
+    @Test
+    void unchangedSummaryLeavesCallersAlone(@TempDir Path directory) {
+        Path summaryFile = directory.resolve("summaries.bin");
+        runWithStore(original, summaryFile);
+
+        // a different body with the same summary
+        Path changed = TestPrograms.compile(MAIN, OUTER, MIDDLE, LEAF.replace(
+                "return \"<\".concat(s).concat(\">\");", "String t = \"<\".concat(s);\n        return t.concat(\">\");"));
+        IFDSSetUp setUp = TestPrograms.setUp(IFDSSetUp.Engine.IDE, changed, "Main");
+        setUp.setMethodSummaryFile(summaryFile);
+        setUp.runAnalysis();
+        assertEquals(1, setUp.getMethodSummaryStore().getLastResummarized(), setUp.getMethodSummaryStore()::toString);
+        assertEquals(TestPrograms.constantsAtEnd(TestPrograms.run(IFDSSetUp.Engine.IDE, changed, "Main")),
+                TestPrograms.constantsAtEnd(setUp.getLastRun()));
+    }
+
+    @Test
+    void changedConstantOfAnotherClassMatchesFullSolve(@TempDir Path directory) {
+        String leaf = """
+                class Leaf {
+                    static String wrap(String s) {
+                        return Brackets.OPEN.concat(s);
+                    }
+
+                    static String name() {
+                        return "leaf";
+                    }
+                }
+                """;
+        String brackets = """
+                class Brackets {
+                    static final String OPEN = "<".concat("-");
+                }
+                """;
+        Path summaryFile = directory.resolve("summaries.bin");
+        runWithStore(TestPrograms.compile(MAIN, OUTER, MIDDLE, leaf, brackets), summaryFile);
+
+        // only the class holding the constant changes, none of the methods reading it
+        Path changed = TestPrograms.compile(MAIN, OUTER, MIDDLE, leaf, brackets.replace("\"<\"", "\"[\""));
+        AnalysisRun incremental = runWithStore(changed, summaryFile);
+        Set<String> expected = TestPrograms.constantsAtEnd(TestPrograms.run(IFDSSetUp.Engine.IDE, changed, "Main"));
+        assertTrue(expected.contains("[-x!"), expected::toString);
+        assertEquals(expected, TestPrograms.constantsAtEnd(incremental));
+    }
+
+    private static AnalysisRun runWithStore(Path classes, Path summaryFile) {
+        IFDSSetUp setUp = TestPrograms.setUp(IFDSSetUp.Engine.IDE, classes, "Main");
+        setUp.setMethodSummaryFile(summaryFile);
+        setUp.runAnalysis();
+        return setUp.getLastRun();
+    }
+}
@@ -0,0 +1,62 @@
+package org.ifds;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelBodyLoaderTest {
+
+    private static Path classes;
+
+    @BeforeAll
+    static void compile() {
+        classes = TestPrograms.compile("""
+                public class Main {
+                    public static void main(String[] args) {
+                        String a = Names.first();
+                        String b = Names.second(a);
+                        System.out.println(a + b);
+                    }
+                }
+                """, """
+                class Names {
+                    static String first() {
+                        return "eager";
+                    }
+
+                    static String second(String s) {
+                        return s.concat("-lazy");
+                    }
+                }
+                """);
+    }
+
+    @ParameterizedTest
+    @EnumSource(IFDSSetUp.Engine.class)
+    void loadingUpFrontMatchesLazyLoading(IFDSSetUp.Engine engine) {
+        IFDSSetUp lazy = new IFDSSetUp();
+        lazy.setEngine(engine);
+        lazy.setLoadParallelism(0);
+        lazy.setupSoot("Main", classes.toString());
+        lazy.runAnalysis();
+        assertNull(lazy.getBodyLoader());
+
+        IFDSSetUp parallel = new IFDSSetUp();
+        parallel.setEngine(engine);
+        parallel.setLoadParallelism(4);
+        parallel.setupSoot("Main", classes.toString());
+        parallel.runAnalysis();
+        assertNotNull(parallel.getBodyLoader());
+        assertTrue(parallel.getBodyLoader().getConvertedCount() >= 3, parallel.getBodyLoader().toString());
+
+        assertEquals(TestPrograms.constantsAtEnd(lazy.getLastRun()),
+                TestPrograms.constantsAtEnd(parallel.getLastRun()));
+    }
+}
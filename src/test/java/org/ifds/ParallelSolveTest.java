@@ -0,0 +1,59 @@
+package org.ifds;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import sootup.core.jimple.common.stmt.Stmt;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ParallelSolveTest {
+
+    private static Path classes;
+
+    /* several callers enter the same callees with different values, so the order returns arrive in varies */
+    @BeforeAll
+    static void compile() {
+        classes = TestPrograms.compile("""
+                public class Main {
+                    public static void main(String[] args) {
+                        String a = wrap("a");
+                        String b = wrap("b");
+                        String c = args.length > 0 ? wrap(a) : wrap(b);
+                        String d = twice(c).concat(twice("d"));
+                        System.out.println(a + b + c + d);
+                    }
+
+                    static String wrap(String s) {
+                        return "[".concat(s).concat("]");
+                    }
+
+                    static String twice(String s) {
+                        return wrap(s).concat(wrap(s));
+                    }
+                }
+                """);
+    }
+
+    @ParameterizedTest
+    @EnumSource(IFDSSetUp.Engine.class)
+    void parallelSolveMatchesSequentialSolve(IFDSSetUp.Engine engine) {
+        IFDSSetUp setUp = TestPrograms.setUp(engine, classes, "Main");
+        setUp.runAnalysis();
+        Map<Stmt, Set<?>> sequential = TestPrograms.resultsOfEntryMethod(setUp.getLastRun());
+        for (int threads : new int[]{2, 4, 8}) {
+            setUp.setNumThreads(threads);
+            for (int repetition = 0; repetition < 5; repetition++) {
+                setUp.runAnalysis();
+                assertFalse(setUp.getLastRun().isFailed(), setUp.getLastRun()::toString);
+                assertEquals(sequential, TestPrograms.resultsOfEntryMethod(setUp.getLastRun()),
+                        engine + " on " + threads + " threads");
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.ifds;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import sootup.core.jimple.basic.Local;
+import sootup.core.jimple.common.stmt.Stmt;
+import sootup.core.model.SootMethod;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QueryTest {
+
+    private static Path classes;
+
+    @BeforeAll
+    static void compile() {
+        classes = TestPrograms.compile("""
+                public class Main {
+                    public static void main(String[] args) throws Exception {
+                        Class.forName(name("Plugin"));
+                        Class.forName(name(args[0]));
+                        String prefix = "ext.";
+                        Class.forName(prefix + "Loader");
+                    }
+
+                    static String name(String simpleName) {
+                        return "synthetic.".concat(simpleName);
+                    }
+                }
+                """);
+    }
+
+    @Test
+    void queriesMatchFullSolve() {
+        IFDSSetUp setUp = TestPrograms.setUp(IFDSSetUp.Engine.IDE, classes, "Main");
+        setUp.runAnalysis();
+        AnalysisRun full = setUp.getLastRun();
+        StringQueries queries = setUp.newQueries(full.getEntryMethod());
+        List<Stmt> sinks = forNameCalls(full.getEntryMethod());
+        assertEquals(3, sinks.size());
+        List<String> values = new ArrayList<>();
+        for (Stmt sink : sinks) {
+            Local name = (Local) sink.getInvokeExpr().getArg(0);
+            values.add(queries.valueOf(sink, name));
+            assertEquals(fullValue(full, sink, name), values.get(values.size() - 1), sink.toString());
+        }
+        assertEquals(List.of("synthetic.Plugin", StringLattice.TOP, "ext.Loader"), values);
+    }
+
+    private static List<Stmt> forNameCalls(SootMethod method) {
+        List<Stmt> calls = new ArrayList<>();
+        for (Stmt stmt : method.getBody().getStmts()) {
+            if (stmt.containsInvokeExpr() && stmt.getInvokeExpr().getMethodSignature().getName().equals("forName")) {
+                calls.add(stmt);
+            }
+        }
+        return calls;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String fullValue(AnalysisRun full, Stmt stmt, Local local) {
+        Set<?> results = full.getResultsAt(stmt);
+        String value = ((Map<Local, String>) results.iterator().next()).get(local);
+        return value == null ? StringLattice.TOP : value;
+    }
+}
@@ -0,0 +1,59 @@
+package org.ifds;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReleaseAfterExportTest {
+
+    private static Path classes;
+
+    @BeforeAll
+    static void compile() {
+        classes = TestPrograms.compile("""
+                public class Main {
+                    public static void main(String[] args) {
+                        String a = "export";
+                        String b = a.concat("ed");
+                        System.out.println(b);
+                    }
+                }
+                """);
+    }
+
+    @Test
+    void releasedRunKeepsItsConstantsInTheFile(@TempDir Path dir) throws IOException {
+        IFDSSetUp setUp = TestPrograms.setUp(IFDSSetUp.Engine.IDE, classes, "Main");
+        setUp.runAnalysis();
+        AnalysisRun kept = setUp.getLastRun();
+        Set<String> expected = TestPrograms.constantsAtEnd(kept);
+
+        setUp.setResultFile(dir.resolve("results.bin"));
+        setUp.setReleaseAfterExport(true);
+        setUp.runAnalysis();
+        AnalysisRun released = setUp.getLastRun();
+
+        assertTrue(released.isReleased());
+        assertFalse(kept.isReleased());
+        assertNull(released.getSolver());
+        assertNull(setUp.getSolver());
+        assertEquals(kept.getPathEdges(), released.getPathEdges());
+        assertThrows(IllegalStateException.class, released::getResultsAtLastStatement);
+
+        ResultFile results = ResultFile.open(dir.resolve("results.bin"));
+        String entry = released.getEntryMethod().getSignature().toString();
+        Set<String> exported = new HashSet<>(results.constantsAt(entry, results.getStmtCount(entry) - 1).values());
+        assertTrue(exported.containsAll(expected), exported + " misses some of " + expected);
+    }
+}
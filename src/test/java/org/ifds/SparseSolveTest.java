@@ -0,0 +1,71 @@
+package org.ifds;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import sootup.core.jimple.basic.Local;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SparseSolveTest {
+
+    private static Path classes;
+
+    @BeforeAll
+    static void compile() {
+        classes = TestPrograms.compile("""
+                public class Main {
+                    public static void main(String[] args) {
+                        int n = args.length * 2;
+                        String a = "sparse";
+                        int m = n + 1;
+                        String b = suffix(a, m);
+                        StringBuilder sb = new StringBuilder(b);
+                        for (int i = 0; i < n; i++) {
+                            sb.append(i);
+                        }
+                        String c = sb.toString();
+                        System.out.println(b + c);
+                    }
+
+                    static String suffix(String s, int k) {
+                        int unused = k * k;
+                        return s.concat("-cfg");
+                    }
+                }
+                """);
+    }
+
+    @ParameterizedTest
+    @EnumSource(IFDSSetUp.Engine.class)
+    void sparseSolveMatchesDenseSolve(IFDSSetUp.Engine engine) {
+        IFDSSetUp setUp = TestPrograms.setUp(engine, classes, "Main");
+        setUp.runAnalysis();
+        Set<Map<Local, String>> dense = stringLocals(setUp.getLastRun().getResultsAtLastStatement());
+        setUp.setSparse(true);
+        setUp.runAnalysis();
+        assertEquals(dense, stringLocals(setUp.getLastRun().getResultsAtLastStatement()));
+    }
+
+    /* Other locals are never known, and the sparse CFG skips their definitions. */
+    @SuppressWarnings("unchecked")
+    private static Set<Map<Local, String>> stringLocals(Set<?> environments) {
+        Set<Map<Local, String>> filtered = new HashSet<>();
+        for (Object environment : environments) {
+            Map<Local, String> locals = new HashMap<>();
+            ((Map<Local, String>) environment).forEach((local, value) -> {
+                if (StringTypes.mayHoldString(local.getType())) {
+                    locals.put(local, value);
+                }
+            });
+            filtered.add(locals);
+        }
+        return filtered;
+    }
+}
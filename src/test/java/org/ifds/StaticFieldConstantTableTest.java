@@ -0,0 +1,55 @@
+package org.ifds;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StaticFieldConstantTableTest {
+
+    private static Path classes;
+
+    @BeforeAll
+    static void compile() {
+        classes = TestPrograms.compile("""
+                public class Main {
+                    public static void main(String[] args) {
+                        String a = Config.FOLDED.concat("!");
+                        String b = Config.PROPERTY.concat("!");
+                        String c = Config.MUTABLE.concat("!");
+                        System.out.println(a + b + c);
+                    }
+                }
+                """, """
+                class Config {
+                    static final String FOLDED = "x".concat("y");
+                    static final String PROPERTY = System.getProperty("name");
+                    static String MUTABLE = "a".concat("b");
+                }
+                """);
+    }
+
+    @Test
+    void foldsFinalFields() {
+        AnalysisRun run = TestPrograms.run(IFDSSetUp.Engine.IFDS_ENVIRONMENT, classes, "Main");
+        assertTrue(TestPrograms.constantsAtEnd(run).contains("xy!"), run::toString);
+    }
+
+    @Test
+    void unmodelledCallsAreUnknown() {
+        Set<String> constants = TestPrograms.constantsAtEnd(TestPrograms.run(IFDSSetUp.Engine.IFDS_ENVIRONMENT,
+                classes, "Main"));
+        assertFalse(constants.contains("!"), constants::toString);
+    }
+
+    @Test
+    void nonFinalFieldsAreUnknown() {
+        Set<String> constants = TestPrograms.constantsAtEnd(TestPrograms.run(IFDSSetUp.Engine.IFDS_ENVIRONMENT,
+                classes, "Main"));
+        assertFalse(constants.contains("ab!"), constants::toString);
+    }
+}
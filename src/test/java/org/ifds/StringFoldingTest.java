@@ -0,0 +1,101 @@
+package org.ifds;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import sootup.core.jimple.basic.Local;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StringFoldingTest {
+
+    private static Path classes;
+
+    @BeforeAll
+    static void compile() {
+        classes = TestPrograms.compile("""
+                public class Main {
+                    public static void main(String[] args) {
+                        String a = "foo";
+                        String b = a.concat("bar");
+                        String c = b.concat("baz");
+                        System.out.println(c);
+                    }
+                }
+                """, """
+                public class TwoLocals {
+                    public static void main(String[] args) {
+                        String a = "foo";
+                        String b = a.concat("bar");
+                        String c = b.concat(a);
+                        System.out.println(c);
+                    }
+                }
+                """, """
+                public class LibraryCall {
+                    public static void main(String[] args) {
+                        String a;
+                        if (args.length > 0) {
+                            a = System.getProperty("name");
+                        } else {
+                            a = "foo";
+                        }
+                        String b = a.concat("!");
+                        String c = "ba".concat("r");
+                        System.out.println(b);
+                        System.out.println(c);
+                    }
+                }
+                """);
+    }
+
+    /* every engine folds a concatenation of one local with literals */
+    @ParameterizedTest
+    @EnumSource(IFDSSetUp.Engine.class)
+    void foldsConcatenations(IFDSSetUp.Engine engine) {
+        AnalysisRun run = TestPrograms.run(engine, classes, "Main");
+        assertEquals(Set.of("foo", "foobar", "foobarbaz"), TestPrograms.constantsAtEnd(run), run::toString);
+    }
+
+    @Test
+    void perLocalFactsAgreeWithEnvironments() {
+        assertEquals(TestPrograms.constantsAtEnd(TestPrograms.run(IFDSSetUp.Engine.IFDS_ENVIRONMENT, classes, "Main")),
+                TestPrograms.constantsAtEnd(TestPrograms.run(IFDSSetUp.Engine.IFDS_PER_LOCAL, classes, "Main")));
+    }
+
+    /* only the environment engine sees both locals of b.concat(a) in one fact, see IDEAnalysisProblem */
+    @ParameterizedTest
+    @EnumSource(IFDSSetUp.Engine.class)
+    void foldsConcatenationsOfTwoLocalsWithEnvironmentsOnly(IFDSSetUp.Engine engine) {
+        AnalysisRun run = TestPrograms.run(engine, classes, "TwoLocals");
+        Set<String> constants = TestPrograms.constantsAtEnd(run);
+        assertTrue(constants.contains("foobar"), constants::toString);
+        assertEquals(engine == IFDSSetUp.Engine.IFDS_ENVIRONMENT, constants.contains("foobarfoo"), constants::toString);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void ideMakesConcatenationsOfTwoLocalsTop() {
+        AnalysisRun run = TestPrograms.run(IFDSSetUp.Engine.IDE, classes, "TwoLocals");
+        Map<Local, String> atEnd = (Map<Local, String>) run.getResultsAtLastStatement().iterator().next();
+        assertTrue(atEnd.containsValue(StringLattice.TOP), atEnd::toString);
+        assertFalse(atEnd.containsValue("foobarfoo"), atEnd::toString);
+    }
+
+    /* the environment engine keeps the branches apart, the others join them at the if */
+    @ParameterizedTest
+    @EnumSource(value = IFDSSetUp.Engine.class, names = {"IFDS_PER_LOCAL", "IDE"})
+    void libraryCallOnOneBranchMakesTheJoinTop(IFDSSetUp.Engine engine) {
+        AnalysisRun run = TestPrograms.run(engine, classes, "LibraryCall");
+        Set<String> constants = TestPrograms.constantsAtEnd(run);
+        assertTrue(constants.contains("bar"), constants::toString);
+        assertFalse(constants.contains("foo!"), constants::toString);
+    }
+}
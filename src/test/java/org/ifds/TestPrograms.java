@@ -0,0 +1,99 @@
+package org.ifds;
+
+import sootup.core.jimple.basic.Local;
+import sootup.core.jimple.common.stmt.Stmt;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Small programs compiled with javac for the tests, and helpers to read the results of a run over
+ * them. Programs live in the default package; the entry class is the one with a main method.
+ */
+final class TestPrograms {
+
+    private static final Pattern TYPE_NAME = Pattern.compile("(?:class|interface)\\s+(\\w+)");
+
+    private TestPrograms() {
+    }
+
+    /* Compiles each source, a compilation unit named after its first type, and returns the class path. */
+    static Path compile(String... sources) {
+        try {
+            Path root = Files.createTempDirectory("ifds-test");
+            Path sourceDir = Files.createDirectories(root.resolve("src"));
+            Path classes = Files.createDirectories(root.resolve("classes"));
+            List<String> arguments = new ArrayList<>(List.of("--release", "11", "-d", classes.toString()));
+            for (String source : sources) {
+                Matcher name = TYPE_NAME.matcher(source);
+                if (!name.find()) {
+                    throw new IllegalArgumentException("No type declared in " + source);
+                }
+                Path file = sourceDir.resolve(name.group(1) + ".java");
+                Files.writeString(file, source);
+                arguments.add(file.toString());
+            }
+            JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+            if (javac == null) {
+                throw new IllegalStateException("The tests compile their inputs and need a JDK, not a JRE");
+            }
+            if (javac.run(null, null, System.err, arguments.toArray(new String[0])) != 0) {
+                throw new IllegalStateException("Could not compile the test program");
+            }
+            return classes;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /* A set-up with the view over the classes and the main method of targetClassName as entry. */
+    static IFDSSetUp setUp(IFDSSetUp.Engine engine, Path classes, String targetClassName) {
+        IFDSSetUp setUp = new IFDSSetUp();
+        setUp.setEngine(engine);
+        setUp.setupSoot(targetClassName, classes.toString());
+        return setUp;
+    }
+
+    static AnalysisRun run(IFDSSetUp.Engine engine, Path classes, String targetClassName) {
+        IFDSSetUp setUp = setUp(engine, classes, targetClassName);
+        setUp.runAnalysis();
+        return setUp.getLastRun();
+    }
+
+    /* The constant values string locals hold at the last statement of the entry method, in any result. */
+    @SuppressWarnings("unchecked")
+    static Set<String> constantsAtEnd(AnalysisRun run) {
+        Set<String> constants = new TreeSet<>();
+        for (Object result : run.getResultsAtLastStatement()) {
+            ((Map<Local, String>) result).forEach((local, value) -> {
+                // "" is what the environment engine starts every local from
+                if (StringTypes.mayHoldString(local.getType()) && !StringLattice.isTop(value)
+                        && !StringLattice.isBottom(value) && !value.isEmpty()) {
+                    constants.add(value);
+                }
+            });
+        }
+        return constants;
+    }
+
+    /* The results at every statement of the entry method, to compare two runs over the same view. */
+    static Map<Stmt, Set<?>> resultsOfEntryMethod(AnalysisRun run) {
+        Map<Stmt, Set<?>> results = new HashMap<>();
+        for (Stmt stmt : run.getEntryMethod().getBody().getStmts()) {
+            results.put(stmt, run.getResultsAt(stmt));
+        }
+        return results;
+    }
+}